@@ -1,5 +1,8 @@
 package com.github.romanqed.unpackr.asm;
 
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -10,62 +13,201 @@ import java.util.function.Consumer;
 final class AsmNodeVisitor implements NodeVisitor {
     final LocalVariablesSorter visitor;
     final Consumer<MethodVisitor>[] loaders;
+    final Class<?>[] types;
+    final NullSafeAccess[] markers;
+    final ConstantTable constants;
+    // Jump target for null values in null-safe chains being emitted
+    private Label missing;
 
-    AsmNodeVisitor(LocalVariablesSorter visitor, int size) {
+    AsmNodeVisitor(LocalVariablesSorter visitor, ConstantTable constants, MemberAccess[][] accesses) {
         this.visitor = visitor;
-        this.loaders = new Consumer[size];
+        this.constants = constants;
+        this.loaders = new Consumer[accesses.length];
+        this.types = new Class<?>[accesses.length];
+        this.markers = new NullSafeAccess[accesses.length];
+        for (var i = 0; i < accesses.length; ++i) {
+            markers[i] = NullSafeAccess.find(accesses[i]);
+        }
+    }
+
+    private static Class<?> typeOf(Node node) {
+        if (node instanceof FieldNode) {
+            return ((FieldNode) node).field.getType();
+        }
+        if (node instanceof MethodNode) {
+            return ((MethodNode) node).method.getReturnType();
+        }
+        if (node instanceof CastNode) {
+            return ((CastNode) node).type;
+        }
+        if (node instanceof IndexNode) {
+            return ((IndexNode) node).type.getComponentType();
+        }
+        // Packed object
+        return Object.class;
+    }
+
+    private static boolean isReference(Node node) {
+        return !typeOf(node).isPrimitive();
+    }
+
+    private void checkNull(MethodVisitor visitor) {
+        // Jump with clean stack, so all jumps to the label have the same frame
+        var present = new Label();
+        visitor.visitInsn(Opcodes.DUP);
+        visitor.visitJumpInsn(Opcodes.IFNONNULL, present);
+        visitor.visitInsn(Opcodes.POP);
+        visitor.visitJumpInsn(Opcodes.GOTO, missing);
+        visitor.visitLabel(present);
+    }
+
+    private void loadParent(MethodVisitor visitor, Node node) {
+        node.parent.accessor.accept(visitor);
+        if (node.nullSafe && isReference(node.parent)) {
+            checkNull(visitor);
+        }
     }
 
     private void store(Node node) {
         if (node.indexes != null) {
+            var type = typeOf(node);
             for (var index : node.indexes) {
                 loaders[index] = node.accessor;
+                types[index] = type;
+            }
+        }
+    }
+
+    boolean load(int index, Class<?> type) {
+        var loader = loaders[index];
+        if (loader == null) {
+            return false;
+        }
+        var source = types[index];
+        var marker = markers[index];
+        if (marker == null) {
+            loader.accept(visitor);
+            Conversions.convert(visitor, source, type);
+            return true;
+        }
+        var value = marker.value(type);
+        var done = new Label();
+        missing = new Label();
+        loader.accept(visitor);
+        if (!source.isPrimitive()) {
+            checkNull(visitor);
+        }
+        Conversions.convert(visitor, source, type);
+        visitor.visitJumpInsn(Opcodes.GOTO, done);
+        visitor.visitLabel(missing);
+        constants.push(visitor, type, value);
+        if (value != null && !type.isPrimitive()) {
+            // Both branches leave exactly the parameter type, so frames merge without loading classes
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+        }
+        visitor.visitLabel(done);
+        missing = null;
+        return true;
+    }
+
+    private static int uses(Node node) {
+        // Both nested chains and parameters bound to the same chain reuse the value
+        var ret = node.indexes == null ? 0 : node.indexes.size();
+        if (node.children != null) {
+            for (var child : node.children.values()) {
+                // Casts re-evaluate the chain they are applied to, so their uses are counted instead
+                ret += child instanceof CastNode ? uses(child) : 1;
             }
         }
+        return ret;
+    }
+
+    private static boolean isShared(Node node, Class<?> type) {
+        // Missing values of null-safe chains are cached as null, which primitive locals cannot hold
+        if (node.nullSafe && type.isPrimitive()) {
+            return false;
+        }
+        return uses(node) > 1;
+    }
+
+    private void storeNullSafe(Node node, Consumer<MethodVisitor> step, int index) {
+        // Missing value is cached as null, children check it again
+        var end = new Label();
+        missing = new Label();
+        loadParent(visitor, node);
+        step.accept(visitor);
+        visitor.visitVarInsn(Opcodes.ASTORE, index);
+        visitor.visitJumpInsn(Opcodes.GOTO, end);
+        visitor.visitLabel(missing);
+        visitor.visitInsn(Opcodes.ACONST_NULL);
+        visitor.visitVarInsn(Opcodes.ASTORE, index);
+        visitor.visitLabel(end);
+        missing = null;
+    }
+
+    private void emit(Node node, Consumer<MethodVisitor> step) {
+        var type = typeOf(node);
+        // Store value in variable, if it is used more than once
+        if (isShared(node, type)) {
+            // Declare new variable
+            var local = Type.getType(type);
+            var index = visitor.newLocal(local);
+            if (node.nullSafe) {
+                storeNullSafe(node, step, index);
+            } else {
+                // Fire access delayed chain and evaluate the step right now
+                node.parent.accessor.accept(visitor);
+                step.accept(visitor);
+                // Store access value to variable
+                visitor.visitVarInsn(local.getOpcode(Opcodes.ISTORE), index);
+            }
+            // Delay loading from var
+            node.accessor = v -> v.visitVarInsn(local.getOpcode(Opcodes.ILOAD), index);
+        } else {
+            // Add step to access chain
+            node.accessor = v -> {
+                loadParent(v, node);
+                step.accept(v);
+            };
+        }
+        // Store access chain, if it also ends here
+        store(node);
     }
 
     @Override
     public void visit(FieldNode node) {
         // Add field load to access chain
         var field = node.field;
-        var owner = Type.getInternalName(field.getDeclaringClass());
+        var owner = Type.getInternalName(AsmUtil.owner(node.receiver, field));
         var descriptor = Type.getDescriptor(field.getType());
+        emit(node, v -> v.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), descriptor));
+    }
+
+    @Override
+    public void visit(CastNode node) {
+        // Add cast to access chain, null passes it as is
+        var type = Type.getInternalName(node.type);
         node.accessor = v -> {
-            node.parent.accessor.accept(v);
-            visitor.visitFieldInsn(
-                    Opcodes.GETFIELD,
-                    owner,
-                    field.getName(),
-                    descriptor
-            );
+            loadParent(v, node);
+            v.visitTypeInsn(Opcodes.CHECKCAST, type);
         };
         // Store access chain
         store(node);
     }
 
+    @Override
+    public void visit(IndexNode node) {
+        // Add element load to access chain, primitive elements stay unboxed
+        var opcode = Type.getType(node.type.getComponentType()).getOpcode(Opcodes.IALOAD);
+        emit(node, v -> {
+            AsmUtil.pushInt(v, node.index);
+            v.visitInsn(opcode);
+        });
+    }
+
     @Override
     public void visit(MethodNode node) {
-        // Store method call in variable
-        if (node.children != null && node.children.size() > 1) {
-            // Fire access delayed chain
-            node.parent.accessor.accept(visitor);
-            // Invoke method right now
-            AsmUtil.invoke(visitor, node.method, node.arguments);
-            // Declare new variable
-            var type = node.method.getReturnType();
-            var index = visitor.newLocal(Type.getType(type));
-            // Store access value to variable
-            visitor.visitVarInsn(Opcodes.ASTORE, index);
-            // Delay loading from var
-            node.accessor = v -> v.visitVarInsn(Opcodes.ALOAD, index);
-            return;
-        }
         // Add method call to access chain
-        node.accessor = v -> {
-            node.parent.accessor.accept(v);
-            AsmUtil.invoke(v, node.method, node.arguments);
-        };
-        // Store access chain
-        store(node);
+        emit(node, v -> constants.invoke(v, node.receiver, node.method, node.arguments));
     }
 }
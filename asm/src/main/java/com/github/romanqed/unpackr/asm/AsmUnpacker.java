@@ -5,16 +5,30 @@ import com.github.romanqed.jeflect.loader.DefineObjectFactory;
 import com.github.romanqed.jeflect.loader.ObjectFactory;
 import com.github.romanqed.jfunc.Function2;
 import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
+import com.github.romanqed.unpackr.PackFunction;
+import com.github.romanqed.unpackr.Packer;
+import com.github.romanqed.unpackr.UnpackSpec;
 import com.github.romanqed.unpackr.Unpacker;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
+import com.github.romanqed.unpackr.WriteAccess;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 /**
  * An {@link Unpacker} implementation that generates unpacking logic using runtime bytecode generation
@@ -26,6 +40,19 @@ import java.util.function.Consumer;
  * <p>
  * This approach allows the unpacking logic to be inlined and optimized by the JVM at runtime,
  * avoiding the overhead of reflection.
+ * <p>
+ * On Java 15+ generated classes can be defined as hidden classes via {@link #AsmUnpacker(MethodHandles.Lookup)}.
+ * Such classes are not bound to the lifetime of a class loader and are unloaded as soon as the unpacker
+ * becomes unreachable.
+ * <p>
+ * Generated classes are named after a SHA-256 fingerprint of the packed type, the target method
+ * and the whole access tree. To skip generation for repeated specs, wrap the unpacker
+ * into a {@link com.github.romanqed.unpackr.CachedUnpacker}.
+ * <p>
+ * Method arguments of any type can be used in access chains. Strings and arguments of primitive parameters
+ * are embedded into bytecode, all other arguments are kept in {@code static final} fields of the generated
+ * class, so they are neither boxed nor loaded on every call. Classes holding non-literal objects
+ * are bound to them and are never reused for equal fingerprints.
  *
  * <h3>Usage Example</h3>
  * Suppose we have a class {@code Ctx} with methods {@code getRq()} and {@code getRp()},
@@ -56,12 +83,16 @@ import java.util.function.Consumer;
  * @see com.github.romanqed.unpackr.MemberAccessBuilder
  */
 @SuppressWarnings("rawtypes")
-public final class AsmUnpacker implements Unpacker {
-    private static final String METHOD_NAME = "invoke";
-    private static final String METHOD_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;";
-    private static final String THROWABLE = "java/lang/Throwable";
-    private static final String FUNCTION2 = Type.getInternalName(Function2.class);
-    private final ObjectFactory<Function2> factory;
+public final class AsmUnpacker implements Unpacker, Packer {
+    private final UnpackerFactory factory;
+    private final UnpackerMetrics metrics;
+    private final BytecodeCache cache;
+
+    private AsmUnpacker(UnpackerFactory factory, UnpackerMetrics metrics, BytecodeCache cache) {
+        this.factory = factory;
+        this.metrics = metrics;
+        this.cache = cache;
+    }
 
     /**
      * Constructs a new {@code AsmUnpacker} with a custom {@link ObjectFactory}
@@ -70,7 +101,7 @@ public final class AsmUnpacker implements Unpacker {
      * @param factory the factory used to define generated classes, must not be {@code null}
      */
     public AsmUnpacker(ObjectFactory<Function2> factory) {
-        this.factory = Objects.requireNonNull(factory);
+        this(new LoaderUnpackerFactory(Objects.requireNonNull(factory)), null, null);
     }
 
     /**
@@ -79,133 +110,74 @@ public final class AsmUnpacker implements Unpacker {
      * @param loader the loader to define generated classes with
      */
     public AsmUnpacker(DefineLoader loader) {
-        this.factory = new DefineObjectFactory<>(loader);
-    }
-
-    private static Consumer<MethodVisitor> buildRootLoader(LocalVariablesSorter visitor, Class<?> packed, int size) {
-        var type = Type.getType(packed);
-        var typeName = type.getInternalName();
-        if (size < 2) {
-            return v -> {
-                v.visitVarInsn(Opcodes.ALOAD, 2);
-                v.visitTypeInsn(Opcodes.CHECKCAST, typeName);
-            };
-        }
-        var index = visitor.newLocal(type);
-        visitor.visitVarInsn(Opcodes.ALOAD, 2);
-        visitor.visitTypeInsn(Opcodes.CHECKCAST, typeName);
-        visitor.visitVarInsn(Opcodes.ASTORE, index);
-        return v -> v.visitVarInsn(Opcodes.ALOAD, index);
-    }
-
-    private static void invokeTargetMethod(MethodVisitor visitor, Method target) {
-        AsmUtil.invoke(visitor, target);
-        var type = target.getReturnType();
-        if (type == void.class) {
-            visitor.visitInsn(Opcodes.ACONST_NULL);
-        } else {
-            AsmUtil.packPrimitive(visitor, type);
-        }
-    }
-
-    private static void generateDirectCall(MethodVisitor visitor,
-                                           Class<?> packed,
-                                           Method target,
-                                           Consumer<MethodVisitor> loader) {
-        // {
-        visitor.visitCode();
-        // Prepare method owner ref
-        if (!Modifier.isStatic(target.getModifiers())) {
-            visitor.visitVarInsn(Opcodes.ALOAD, 1);
-            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(target.getDeclaringClass()));
-        }
-        var types = target.getParameterTypes();
-        for (var type : types) {
-            if (type != packed) {
-                throw new IllegalArgumentException("Mismatched types: " + type + ", " + packed);
-            }
-            loader.accept(visitor);
-        }
-        invokeTargetMethod(visitor, target);
-        visitor.visitInsn(Opcodes.ARETURN);
-        // }
-        visitor.visitMaxs(0, 0);
-        visitor.visitEnd();
-    }
-
-    private static void generateMethod(LocalVariablesSorter visitor,
-                                       Class<?> packed,
-                                       Method target,
-                                       MemberAccess[][] accesses) {
-        // Build access tree
-        var count = new int[1];
-        var node = NodeUtil.of(accesses, count);
-        var children = node.children;
-        // Check shortcut
-        if (children == null) {
-            var loader = buildRootLoader(visitor, packed, count[0]);
-            generateDirectCall(visitor, packed, target, loader);
+        this(new LoaderUnpackerFactory(new DefineObjectFactory<>(loader)), null, null);
+    }
+
+    /**
+     * Constructs a new {@code AsmUnpacker} that defines generated classes as hidden classes
+     * using the specified {@link MethodHandles.Lookup}.
+     * <p>
+     * Generated classes are placed in the package of the lookup class, so the module of the lookup class
+     * must be able to read all types used by the access chains. Hidden classes are defined without
+     * {@code ClassOption.STRONG}, so they can be unloaded once the returned unpackers are unreachable.
+     *
+     * @param lookup the lookup with full privilege access to define hidden classes with, must not be {@code null}
+     * @throws IllegalStateException    if the current runtime is older than Java 15
+     * @throws IllegalArgumentException if the lookup has no full privilege access
+     */
+    public AsmUnpacker(MethodHandles.Lookup lookup) {
+        this(hiddenFactory(Objects.requireNonNull(lookup)), null, null);
+    }
+
+    private static UnpackerFactory hiddenFactory(MethodHandles.Lookup lookup) {
+        var version = Runtime.version().feature();
+        if (version < 15) {
+            throw new IllegalStateException(
+                    "Hidden classes require Java 15 or newer, current runtime is Java " + version
+            );
+        }
+        // The factory exists only in the Java 15+ part of the multi-release jar
+        try {
+            var type = Class.forName(AsmUnpacker.class.getPackageName() + ".HiddenUnpackerFactory");
+            var constructor = MethodHandles.lookup()
+                    .findConstructor(type, MethodType.methodType(void.class, MethodHandles.Lookup.class));
+            return (UnpackerFactory) constructor.invoke(lookup);
+        } catch (Error | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create hidden unpacker factory", e);
+        }
+    }
+
+    private static void checkFunction(Class<?> packed, Method target, FunctionType function) {
+        var isStatic = Modifier.isStatic(target.getModifiers());
+        if (function.owner == null && !isStatic) {
+            throw new IllegalArgumentException("Functional method without owner parameter requires static target");
+        }
+        if (!isStatic && !isCastable(function.owner, target.getDeclaringClass())) {
+            throw new IllegalArgumentException("Mismatched owner types: " + function.owner + ", " + target);
+        }
+        if (!isCastable(function.packed, packed)) {
+            throw new IllegalArgumentException("Mismatched packed types: " + function.packed + ", " + packed);
+        }
+        var from = target.getReturnType();
+        var to = function.method.getReturnType();
+        if (to == void.class || from == to) {
             return;
         }
-        var loader = buildRootLoader(visitor, packed, count[0] + children.size());
-        node.accessor = loader;
-        // Generate cache vars and prepare arg loaders
-        var nodeVisitor = new AsmNodeVisitor(visitor, accesses.length);
-        node.accept(nodeVisitor);
-        // {
-        visitor.visitCode();
-        // Prepare method owner ref
-        if (!Modifier.isStatic(target.getModifiers())) {
-            visitor.visitVarInsn(Opcodes.ALOAD, 1);
-            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(target.getDeclaringClass()));
-        }
-        // Invoke loaders
-        var loaders = nodeVisitor.loaders;
-        var types = target.getParameterTypes();
-        for (var i = 0; i < loaders.length; ++i) {
-            var argType = types[i];
-            if (argType == packed) {
-                loader.accept(visitor);
-                continue;
-            }
-            loaders[i].accept(visitor);
-            if (!argType.isPrimitive()) {
-                visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(argType));
-            }
+        if (from == void.class ? to.isPrimitive() : !isCastable(AsmUtil.PRIMITIVES.getOrDefault(from, from), to)) {
+            throw new IllegalArgumentException("Mismatched return types: " + from + ", " + to);
         }
-        invokeTargetMethod(visitor, target);
-        visitor.visitInsn(Opcodes.ARETURN);
-        // }
-        visitor.visitMaxs(0, 0);
-        visitor.visitEnd();
-    }
-
-    private static byte[] generateUnpacker(String name, Class<?> packed, Method target, MemberAccess[][] accesses) {
-        var writer = new LocalVariablesWriter(ClassWriter.COMPUTE_MAXS);
-        writer.visit(
-                Opcodes.V11,
-                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
-                name,
-                null,
-                AsmUtil.OBJECT_NAME,
-                new String[]{FUNCTION2}
-        );
-        AsmUtil.createEmptyConstructor(writer);
-        var visitor = writer.visitMethodWithLocals(
-                Opcodes.ACC_PUBLIC,
-                METHOD_NAME,
-                METHOD_DESCRIPTOR,
-                null,
-                new String[]{THROWABLE}
-        );
-        generateMethod(visitor, packed, target, accesses);
-        writer.visitEnd();
-        return writer.toByteArray();
     }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+    private static boolean isCastable(Class<?> from, Class<?> to) {
+        if (from.isPrimitive() || to.isPrimitive()) {
+            return false;
+        }
+        return from.isAssignableFrom(to) || to.isAssignableFrom(from) || from.isInterface() || to.isInterface();
+    }
+
+    static void checkTarget(Method target, MemberAccess[][] accesses) {
         if (!Modifier.isPublic(target.getModifiers())) {
             throw new IllegalArgumentException("Target method must be public");
         }
@@ -218,7 +190,459 @@ public final class AsmUnpacker implements Unpacker {
                     "The size of the accesses array does not match the parameters of the target method"
             );
         }
-        var name = "Unpacker" + packed.hashCode() + ":" + target.hashCode();
-        return factory.create(name, () -> generateUnpacker(name, packed, target, accesses));
+        // Default values are checked before generation, so errors are not wrapped by the factory
+        var parameters = target.getParameterTypes();
+        for (var i = 0; i < count; ++i) {
+            if (WriteAccess.find(accesses[i]) != null) {
+                throw new IllegalArgumentException("Write chains can only be used by a packer: " + i);
+            }
+            var marker = NullSafeAccess.find(accesses[i]);
+            if (marker != null) {
+                marker.value(parameters[i]);
+            }
+        }
+        Conversions.check(target, accesses);
+    }
+
+    private ConstantTable table(String name, boolean bound) {
+        var counter = metrics == null ? null : metrics.counter(name);
+        // Classes holding object constants or counters are bound to them, so they are never reused by name
+        return new ConstantTable(bound || counter != null ? ConstantTable.unique(name) : name, counter);
+    }
+
+    private byte[] generate(ConstantTable constants, IntSupplier nodes, Function<ConstantTable, byte[]> generator) {
+        if (metrics == null) {
+            return generator.apply(constants);
+        }
+        var start = System.nanoTime();
+        var ret = generator.apply(constants);
+        var nanos = System.nanoTime() - start;
+        metrics.onGenerated(constants.owner, nanos, ret.length, nodes.getAsInt(), AsmUtil.maxLocals(ret));
+        return ret;
+    }
+
+    private boolean isPersistent(String name, ConstantTable constants) {
+        // Only classes named by fingerprint alone can be persisted, bound ones differ on every start
+        return cache != null && name.equals(constants.owner);
+    }
+
+    private Bytecode generate(String name,
+                              ConstantTable constants,
+                              IntSupplier nodes,
+                              Function<ConstantTable, byte[]> generator) {
+        if (isPersistent(name, constants)) {
+            var ret = cache.load(name);
+            if (ret != null) {
+                return new Bytecode(ret, true);
+            }
+        }
+        return new Bytecode(generate(constants, nodes, generator), false);
+    }
+
+    private void persist(String name, ConstantTable constants, Bytecode bytecode) {
+        // Bytes are persisted only once the class is defined, so broken classes never reach the cache
+        if (!bytecode.loaded && isPersistent(name, constants) && constants.isEmpty()) {
+            cache.store(name, bytecode.bytes);
+        }
+    }
+
+    private void evict(String name, Bytecode bytecode) {
+        // Entry passed validation, but its class cannot be defined, so it is generated again on the next start
+        if (bytecode != null && bytecode.loaded) {
+            cache.evict(name);
+        }
+    }
+
+    private Object create(String name,
+                          boolean bound,
+                          IntSupplier nodes,
+                          Function<ConstantTable, byte[]> generator) {
+        var constants = table(name, bound);
+        // The factory does not call the generator if the class is already defined
+        var bytecode = new Bytecode[1];
+        var start = new long[1];
+        try {
+            var ret = factory.create(constants.owner, () -> {
+                bytecode[0] = generate(name, constants, nodes, generator);
+                start[0] = System.nanoTime();
+                return bytecode[0].bytes;
+            });
+            if (bytecode[0] != null) {
+                if (metrics != null) {
+                    metrics.onDefined(constants.owner, System.nanoTime() - start[0]);
+                }
+                persist(name, constants, bytecode[0]);
+            }
+            return ret;
+        } catch (Error | RuntimeException e) {
+            evict(name, bytecode[0]);
+            throw e;
+        } finally {
+            // Constants are already in static fields once the class is initialized
+            constants.release();
+        }
+    }
+
+    private String name(FunctionType function, Class<?> packed, Method target, MemberAccess[][] accesses) {
+        checkTarget(target, accesses);
+        checkFunction(packed, target, function);
+        // Equal specs share the class name, so the loader can reuse an already defined class
+        var fingerprint = Fingerprint.of(function.type, packed, target, accesses);
+        return factory.qualify("Unpacker$" + fingerprint);
+    }
+
+    private Object unpack(FunctionType function, Class<?> packed, Method target, MemberAccess[][] accesses) {
+        return create(
+                name(function, packed, target, accesses),
+                ConstantTable.hasObjects(accesses),
+                () -> NodeUtil.count(accesses),
+                constants -> UnpackGenerator.generate(constants.owner, packed, target, function, constants, accesses)
+        );
+    }
+
+    private Generated generate(UnpackSpec spec) {
+        var start = System.nanoTime();
+        var packed = spec.packed();
+        var target = spec.target();
+        var accesses = spec.accesses();
+        var function = FunctionType.FUNCTION2;
+        var name = name(function, packed, target, accesses);
+        var constants = table(name, ConstantTable.hasObjects(accesses));
+        try {
+            var bytecode = generate(
+                    name,
+                    constants,
+                    () -> NodeUtil.count(accesses),
+                    table -> UnpackGenerator.generate(table.owner, packed, target, function, table, accesses)
+            );
+            return new Generated(spec, name, constants, bytecode, System.nanoTime() - start);
+        } catch (Error | RuntimeException e) {
+            constants.release();
+            throw e;
+        }
+    }
+
+    private PrecompiledUnpackers define(List<Generated> generated) {
+        var functions = new LinkedHashMap<UnpackSpec, Function2>();
+        var timings = new LinkedHashMap<UnpackSpec, Duration>();
+        try {
+            // Generation is done, so the loader lock is held only for definition itself
+            for (var entry : generated) {
+                // The factory does not take the bytes if the class is already defined
+                var defined = new boolean[1];
+                var start = System.nanoTime();
+                Function2 function;
+                try {
+                    function = (Function2) factory.create(entry.constants.owner, () -> {
+                        defined[0] = true;
+                        return entry.bytecode.bytes;
+                    });
+                } catch (Error | RuntimeException e) {
+                    evict(entry.name, entry.bytecode);
+                    throw e;
+                }
+                var nanos = System.nanoTime() - start;
+                if (defined[0]) {
+                    if (metrics != null) {
+                        metrics.onDefined(entry.constants.owner, nanos);
+                    }
+                    persist(entry.name, entry.constants, entry.bytecode);
+                }
+                functions.put(entry.spec, function);
+                timings.put(entry.spec, Duration.ofNanos(entry.nanos + nanos));
+            }
+        } finally {
+            // Constants are already in static fields once classes are initialized
+            release(generated);
+        }
+        return new PrecompiledUnpackers(functions, timings);
+    }
+
+    private static void release(List<Generated> generated) {
+        for (var entry : generated) {
+            if (entry != null) {
+                entry.constants.release();
+            }
+        }
+    }
+
+    /**
+     * Creates an implementation of the specified functional interface, that unpacks the packed object
+     * and invokes the target method.
+     * <p>
+     * The interface must be public and declare exactly one abstract method, accepting either
+     * {@code (owner, packed)}, or only {@code (packed)} for static targets. Its parameter types may be
+     * any supertypes of the owner and packed types. The generated method returns the result of the target
+     * as is: primitive results are not boxed when the functional method returns the same primitive type,
+     * and {@code void} functional methods discard the result.
+     *
+     * <pre>{@code
+     * interface IntHandler {
+     *     int apply(Handler handler, Ctx ctx);
+     * }
+     *
+     * IntHandler function = unpacker.unpack(IntHandler.class, Ctx.class, method, rqPropsAccess, rpPropsAccess);
+     * }</pre>
+     *
+     * @param type     the functional interface to implement
+     * @param packed   the class of the packed input object
+     * @param target   the target method to invoke
+     * @param accesses the access chains for target method parameters
+     * @param <F>      the type of the functional interface
+     * @param <T>      the type of the packed object
+     * @return the generated implementation of the functional interface
+     * @throws IllegalArgumentException if the interface or the target method is not suitable
+     */
+    public <F, T> F unpack(Class<F> type, Class<T> packed, Method target, MemberAccess[]... accesses) {
+        return type.cast(unpack(FunctionType.of(type), packed, target, accesses));
+    }
+
+    /**
+     * Creates a {@link BatchFunction} that unpacks each element of a batch and invokes the target method.
+     * <p>
+     * The loop over the batch is generated together with the unpacking logic, so the whole batch is
+     * processed by a single method, which the JIT compiles as one unit. Results are boxed only if the caller
+     * provides an array to store them into.
+     *
+     * <pre>{@code
+     * var batch = unpacker.unpackBatch(Ctx.class, method, rqPropsAccess, rpPropsAccess);
+     * var results = new Object[contexts.length];
+     * batch.invoke(target, contexts, results);
+     * }</pre>
+     *
+     * @param packed   the class of the packed input objects
+     * @param target   the target method to invoke
+     * @param accesses the access chains for target method parameters
+     * @param <T>      the type of the packed objects
+     * @return the generated batch function
+     * @throws IllegalArgumentException if the target method is not suitable
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BatchFunction<T> unpackBatch(Class<T> packed, Method target, MemberAccess[]... accesses) {
+        checkTarget(target, accesses);
+        var fingerprint = Fingerprint.of(BatchFunction.class, packed, target, accesses);
+        return (BatchFunction<T>) create(
+                factory.qualify("BatchUnpacker$" + fingerprint),
+                ConstantTable.hasObjects(accesses),
+                () -> NodeUtil.count(accesses),
+                constants -> BatchGenerator.generate(constants.owner, packed, target, constants, accesses)
+        );
+    }
+
+    /**
+     * Creates a {@link FanOutFunction} that unpacks a packed object once and invokes the target methods
+     * of all specs in order.
+     * <p>
+     * Access chains of all specs are merged into one access tree, so a prefix shared by several targets,
+     * such as a getter or a map lookup used by many listeners, is evaluated once per invocation
+     * instead of once per target.
+     *
+     * <pre>{@code
+     * var fanOut = unpacker.unpackFanOut(Ctx.class, List.of(
+     *         new UnpackSpec(Ctx.class, onRequest, rqPropsAccess),
+     *         new UnpackSpec(Ctx.class, onResponse, rqPropsAccess, rpPropsAccess)
+     * ));
+     * fanOut.invoke(new Object[]{first, second}, ctx);
+     * }</pre>
+     *
+     * @param packed the class of the packed input object
+     * @param specs  the specs to invoke, all with the same packed type
+     * @param <T>    the type of the packed object
+     * @return the generated fan-out function
+     * @throws IllegalArgumentException if specs are empty, have different packed types
+     *                                  or any target method is not suitable
+     */
+    @SuppressWarnings("unchecked")
+    public <T> FanOutFunction<T> unpackFanOut(Class<T> packed, List<UnpackSpec> specs) {
+        var accesses = FanOutGenerator.merge(packed, specs);
+        var copy = List.copyOf(specs);
+        var fingerprint = Fingerprint.of(FanOutFunction.class, packed, copy);
+        return (FanOutFunction<T>) create(
+                factory.qualify("FanOutUnpacker$" + fingerprint),
+                ConstantTable.hasObjects(accesses),
+                () -> NodeUtil.count(accesses),
+                constants -> FanOutGenerator.generate(constants.owner, packed, copy, constants, accesses)
+        );
+    }
+
+    /**
+     * Creates a {@link PackFunction} that writes values into nested members of a packed object,
+     * the inverse of {@link #unpack(Class, Method, MemberAccess[][])}.
+     * <p>
+     * Each chain navigates to the value to be modified and ends with a field write or a method call,
+     * that receives the value after its constant arguments. Prefixes of all chains are merged into one
+     * access tree, so several writes into the same nested object navigate to it once per invocation.
+     * Prefixes are evaluated before any value is written. Values are converted to field or parameter types
+     * like unpacked arguments, so {@code null} is written as zero into primitive members.
+     *
+     * <pre>{@code
+     * var rpProps = MemberAccess.of()
+     *           .of(Ctx.class)
+     *           .of(Ctx.class.getMethod("getRp"))
+     *           .of(Rp.class.getMethod("getRpProps"));
+     * var put = Map.class.getMethod("put", Object.class, Object.class);
+     * var packer = unpacker.pack(Ctx.class,
+     *         rpProps.set(put, "status").build(),
+     *         MemberAccess.of().of(Ctx.class).set(Ctx.class.getField("code")).build()
+     * );
+     * packer.invoke(ctx, "ok", 200);
+     * }</pre>
+     *
+     * @param packed   the class of the packed input object
+     * @param accesses the access chains, each ending with a write
+     * @param <T>      the type of the packed object
+     * @return the generated pack function
+     * @throws IllegalArgumentException if there are no chains, or any chain does not end with a write
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> PackFunction<T> pack(Class<T> packed, MemberAccess[]... accesses) {
+        var prefixes = PackGenerator.split(accesses);
+        var fingerprint = Fingerprint.of(PackFunction.class, packed, accesses);
+        return (PackFunction<T>) create(
+                factory.qualify("Packer$" + fingerprint),
+                ConstantTable.hasObjects(accesses),
+                () -> NodeUtil.count(prefixes),
+                constants -> PackGenerator.generate(constants.owner, packed, constants, accesses, prefixes)
+        );
+    }
+
+    /**
+     * Returns a copy of this unpacker, that reports code generation metrics to the specified listener.
+     * <p>
+     * Unpackers created before keep working as is. If the listener provides invocation counters,
+     * generated methods increment them on every call.
+     *
+     * <pre>{@code
+     * var unpacker = new AsmUnpacker(new DefineClassLoader()).withMetrics(new JfrUnpackerMetrics(true));
+     * }</pre>
+     *
+     * @param metrics the metrics listener, must not be {@code null}
+     * @return the unpacker with metrics
+     */
+    public AsmUnpacker withMetrics(UnpackerMetrics metrics) {
+        return new AsmUnpacker(factory, Objects.requireNonNull(metrics), cache);
+    }
+
+    /**
+     * Returns a copy of this unpacker, that persists generated bytecode in the specified directory.
+     * <p>
+     * Classes are stored under a fingerprint of the packed type, the target method and the access tree,
+     * together with a format version and a checksum, so on the next start they are loaded without
+     * generation. Entries are written atomically and validated on read, broken or stale entries are
+     * regenerated. Classes bound to object constants, owners or invocation counters are never persisted.
+     * Write failures are ignored, so a read-only directory only disables the cache.
+     *
+     * <pre>{@code
+     * var unpacker = new AsmUnpacker(new DefineClassLoader()).withCache(Path.of("/var/cache/unpackr"));
+     * }</pre>
+     *
+     * @param directory the cache directory, created if missing
+     * @return the unpacker with the bytecode cache
+     * @throws IllegalStateException if the directory cannot be created
+     */
+    public AsmUnpacker withCache(Path directory) {
+        return new AsmUnpacker(factory, metrics, new BytecodeCache(Objects.requireNonNull(directory)));
+    }
+
+    /**
+     * Creates a {@link RouteBuilder} collecting routes for a single generated {@link RouteFunction}.
+     *
+     * @param packed the class of the packed input objects
+     * @param <T>    the type of the packed objects
+     * @return the route builder
+     */
+    public <T> RouteBuilder<T> routes(Class<T> packed) {
+        return new RouteBuilder<>(this, Objects.requireNonNull(packed));
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> RouteFunction<T> unpackRoutes(Class<T> packed, List<Route> routes) {
+        var ints = new ArrayList<Route>();
+        var strings = new ArrayList<Route>();
+        var bound = false;
+        for (var route : routes) {
+            (route.key instanceof Integer ? ints : strings).add(route);
+            // Owners and object constants are bound by identity, so such classes are never reused by name
+            bound |= !Modifier.isStatic(route.target.getModifiers()) || ConstantTable.hasObjects(route.accesses);
+        }
+        var fingerprint = Fingerprint.of(RouteFunction.class, packed, routes);
+        return (RouteFunction<T>) create(
+                factory.qualify("RouteUnpacker$" + fingerprint),
+                bound,
+                () -> routes.stream().mapToInt(route -> NodeUtil.count(route.accesses)).sum(),
+                constants -> RouteGenerator.generate(constants.owner, packed, ints, strings, constants)
+        );
+    }
+
+    /**
+     * Creates unpackers for all specs in parallel, as {@link #unpack(Class, Method, MemberAccess[]...)} would.
+     * <p>
+     * Bytecode of every spec is generated by a separate task on the specified executor. Once all of them
+     * are done, the classes are defined one after another, so a loader that serializes definitions is not
+     * blocked by generation. The result reports time spent on each spec to help find slow ones.
+     *
+     * <pre>{@code
+     * var precompiled = unpacker.precompile(specs, ForkJoinPool.commonPool()).join();
+     * precompiled.timings().forEach((spec, time) -> log.debug("{} took {}", spec.target(), time));
+     * var function = precompiled.get(spec);
+     * }</pre>
+     *
+     * @param specs    the specs to create unpackers for, duplicates are created once
+     * @param executor the executor to generate bytecode on
+     * @return the future completed with created unpackers, or exceptionally if any spec is not suitable
+     */
+    public CompletableFuture<PrecompiledUnpackers> precompile(Collection<UnpackSpec> specs, Executor executor) {
+        Objects.requireNonNull(executor);
+        var distinct = new ArrayList<>(new LinkedHashSet<>(specs));
+        var size = distinct.size();
+        var generated = new Generated[size];
+        var futures = new CompletableFuture[size];
+        for (var i = 0; i < size; ++i) {
+            var index = i;
+            var spec = distinct.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> generated[index] = generate(spec), executor);
+        }
+        var list = Arrays.asList(generated);
+        return CompletableFuture.allOf(futures)
+                .whenComplete((ignored, error) -> {
+                    // Constants of successfully generated specs are never taken by their classes
+                    if (error != null) {
+                        release(list);
+                    }
+                })
+                .thenApply(ignored -> define(list));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+        return (Function2<Object, T, Object>) unpack(FunctionType.FUNCTION2, packed, target, accesses);
+    }
+
+    private static final class Bytecode {
+        final byte[] bytes;
+        final boolean loaded;
+
+        Bytecode(byte[] bytes, boolean loaded) {
+            this.bytes = bytes;
+            this.loaded = loaded;
+        }
+    }
+
+    private static final class Generated {
+        final UnpackSpec spec;
+        final String name;
+        final ConstantTable constants;
+        final Bytecode bytecode;
+        final long nanos;
+
+        Generated(UnpackSpec spec, String name, ConstantTable constants, Bytecode bytecode, long nanos) {
+            this.spec = spec;
+            this.name = name;
+            this.constants = constants;
+            this.bytecode = bytecode;
+            this.nanos = nanos;
+        }
     }
 }
@@ -1,10 +1,13 @@
 package com.github.romanqed.unpackr.asm;
 
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Map;
@@ -14,6 +17,8 @@ final class AsmUtil {
     static final String OBJECT_NAME = "java/lang/Object";
     static final String INIT = "<init>";
     static final String EMPTY_DESCRIPTOR = "()V";
+    static final String THROWABLE = "java/lang/Throwable";
+    static final String INVOKE = "invoke";
     static final Map<Class<?>, Class<?>> PRIMITIVES = Map.of(
             boolean.class, Boolean.class,
             char.class, Character.class,
@@ -65,10 +70,40 @@ final class AsmUtil {
         init.visitEnd();
     }
 
-    static void invoke(MethodVisitor visitor, Method method) {
-        var owner = method.getDeclaringClass();
+    static int maxLocals(byte[] bytes) {
+        var ret = new int[1];
+        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access,
+                                             String name,
+                                             String descriptor,
+                                             String signature,
+                                             String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMaxs(int maxStack, int maxLocals) {
+                        ret[0] = Math.max(ret[0], maxLocals);
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return ret[0];
+    }
+
+    static Class<?> owner(Class<?> receiver, Member member) {
+        var owner = member.getDeclaringClass();
+        // Public members inherited from non-public classes are only accessible through the receiver type
+        if (Modifier.isPublic(owner.getModifiers()) || !owner.isAssignableFrom(receiver)) {
+            return owner;
+        }
+        return receiver;
+    }
+
+    static void invoke(MethodVisitor visitor, Class<?> receiver, Method method) {
+        var isStatic = Modifier.isStatic(method.getModifiers());
+        var owner = isStatic ? method.getDeclaringClass() : owner(receiver, method);
         var isInterface = owner.isInterface();
-        var opcode = Modifier.isStatic(method.getModifiers()) ?
+        var opcode = isStatic ?
                 Opcodes.INVOKESTATIC
                 : (isInterface ?
                 Opcodes.INVOKEINTERFACE
@@ -82,6 +117,10 @@ final class AsmUtil {
         );
     }
 
+    static void invoke(MethodVisitor visitor, Method method) {
+        invoke(visitor, method.getDeclaringClass(), method);
+    }
+
     static void packPrimitive(MethodVisitor visitor, Class<?> primitive) {
         if (!primitive.isPrimitive()) {
             return;
@@ -200,16 +239,4 @@ final class AsmUtil {
                 false
         );
     }
-
-    static void invoke(MethodVisitor visitor, Method method, Object[] arguments) {
-        if (arguments == null || arguments.length == 0) {
-            invoke(visitor, method);
-            return;
-        }
-        var types = method.getParameterTypes();
-        for (var i = 0; i < types.length; ++i) {
-            push(visitor, types[i], arguments[i]);
-        }
-        invoke(visitor, method);
-    }
 }
@@ -0,0 +1,59 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.util.List;
+
+/**
+ * A function that unpacks a batch of packed objects and invokes the target method for each of them.
+ * <p>
+ * Implementations are generated by {@link AsmUnpacker#unpackBatch(Class, java.lang.reflect.Method,
+ * com.github.romanqed.unpackr.MemberAccess[][])}, so the whole loop is a single generated method,
+ * without an interface call per element.
+ *
+ * @param <T> the type of packed objects
+ */
+public interface BatchFunction<T> {
+
+    /**
+     * Invokes the target method for each element of the array.
+     *
+     * @param owner   the target method owner, ignored for static targets
+     * @param packed  the packed objects
+     * @param results the array to store results into, at the same indexes as packed objects,
+     *                or {@code null} to discard them; must not be shorter than {@code packed}
+     * @throws Throwable if the target method or any access chain throws
+     */
+    void invoke(Object owner, T[] packed, Object[] results) throws Throwable;
+
+    /**
+     * Invokes the target method for each element of the list.
+     *
+     * @param owner   the target method owner, ignored for static targets
+     * @param packed  the packed objects, should support fast random access
+     * @param results the array to store results into, at the same indexes as packed objects,
+     *                or {@code null} to discard them; must not be shorter than {@code packed}
+     * @throws Throwable if the target method or any access chain throws
+     */
+    void invoke(Object owner, List<? extends T> packed, Object[] results) throws Throwable;
+
+    /**
+     * Invokes the target method for each element of the array, discarding results.
+     *
+     * @param owner  the target method owner, ignored for static targets
+     * @param packed the packed objects
+     * @throws Throwable if the target method or any access chain throws
+     */
+    default void invoke(Object owner, T[] packed) throws Throwable {
+        invoke(owner, packed, null);
+    }
+
+    /**
+     * Invokes the target method for each element of the list, discarding results.
+     *
+     * @param owner  the target method owner, ignored for static targets
+     * @param packed the packed objects, should support fast random access
+     * @throws Throwable if the target method or any access chain throws
+     */
+    default void invoke(Object owner, List<? extends T> packed) throws Throwable {
+        invoke(owner, packed, null);
+    }
+}
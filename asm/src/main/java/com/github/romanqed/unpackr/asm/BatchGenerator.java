@@ -0,0 +1,157 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.function.Consumer;
+
+final class BatchGenerator {
+    private static final String LIST = "java/util/List";
+    private static final String BATCH_FUNCTION = Type.getInternalName(BatchFunction.class);
+    private static final String BATCH_ARRAY_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;[Ljava/lang/Object;)V";
+    private static final String BATCH_LIST_DESCRIPTOR = "(Ljava/lang/Object;Ljava/util/List;[Ljava/lang/Object;)V";
+
+    private BatchGenerator() {
+    }
+
+    static void storeResult(MethodVisitor visitor, Class<?> type, Consumer<MethodVisitor> index) {
+        if (type == void.class) {
+            return;
+        }
+        var store = new Label();
+        var next = new Label();
+        visitor.visitVarInsn(Opcodes.ALOAD, 3);
+        visitor.visitJumpInsn(Opcodes.IFNONNULL, store);
+        // Results are discarded, so do not box them
+        visitor.visitInsn(type == long.class || type == double.class ? Opcodes.POP2 : Opcodes.POP);
+        visitor.visitJumpInsn(Opcodes.GOTO, next);
+        visitor.visitLabel(store);
+        AsmUtil.packPrimitive(visitor, type);
+        // results[index] = value
+        visitor.visitVarInsn(Opcodes.ALOAD, 3);
+        visitor.visitInsn(Opcodes.SWAP);
+        index.accept(visitor);
+        visitor.visitInsn(Opcodes.SWAP);
+        visitor.visitInsn(Opcodes.AASTORE);
+        visitor.visitLabel(next);
+    }
+
+    private static void generateBatchMethod(LocalVariablesSorter visitor,
+                                            Class<?> packed,
+                                            Method target,
+                                            ConstantTable constants,
+                                            MemberAccess[][] accesses,
+                                            boolean isList) {
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        // Cast owner once for the whole batch
+        var isStatic = Modifier.isStatic(target.getModifiers());
+        var owner = -1;
+        if (!isStatic) {
+            var ownerType = Type.getType(target.getDeclaringClass());
+            owner = visitor.newLocal(ownerType);
+            visitor.visitVarInsn(Opcodes.ALOAD, 1);
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, ownerType.getInternalName());
+            visitor.visitVarInsn(Opcodes.ASTORE, owner);
+        }
+        // int size = packed.length (packed.size())
+        var size = visitor.newLocal(Type.INT_TYPE);
+        visitor.visitVarInsn(Opcodes.ALOAD, 2);
+        if (isList) {
+            visitor.visitMethodInsn(Opcodes.INVOKEINTERFACE, LIST, "size", "()I", true);
+        } else {
+            visitor.visitInsn(Opcodes.ARRAYLENGTH);
+        }
+        visitor.visitVarInsn(Opcodes.ISTORE, size);
+        // for (int index = 0; index < size; ++index) {
+        var index = visitor.newLocal(Type.INT_TYPE);
+        visitor.visitInsn(Opcodes.ICONST_0);
+        visitor.visitVarInsn(Opcodes.ISTORE, index);
+        var head = new Label();
+        var end = new Label();
+        visitor.visitLabel(head);
+        visitor.visitVarInsn(Opcodes.ILOAD, index);
+        visitor.visitVarInsn(Opcodes.ILOAD, size);
+        visitor.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        // var element = (Packed) packed[index] (packed.get(index))
+        var packedType = Type.getType(packed);
+        var element = visitor.newLocal(packedType);
+        visitor.visitVarInsn(Opcodes.ALOAD, 2);
+        visitor.visitVarInsn(Opcodes.ILOAD, index);
+        if (isList) {
+            visitor.visitMethodInsn(Opcodes.INVOKEINTERFACE, LIST, "get", "(I)Ljava/lang/Object;", true);
+        } else {
+            visitor.visitInsn(Opcodes.AALOAD);
+        }
+        visitor.visitTypeInsn(Opcodes.CHECKCAST, packedType.getInternalName());
+        visitor.visitVarInsn(Opcodes.ASTORE, element);
+        Consumer<MethodVisitor> root = v -> v.visitVarInsn(Opcodes.ALOAD, element);
+        // Evaluate shared nodes and prepare arg loaders
+        var node = NodeUtil.of(packed, accesses, new int[1]);
+        var nodeVisitor = (AsmNodeVisitor) null;
+        if (node.size() != 0) {
+            node.accessor = root;
+            nodeVisitor = new AsmNodeVisitor(visitor, constants, accesses);
+            node.accept(nodeVisitor);
+        }
+        if (!isStatic) {
+            visitor.visitVarInsn(Opcodes.ALOAD, owner);
+        }
+        UnpackGenerator.loadArguments(visitor, packed, target, root, nodeVisitor, 0);
+        AsmUtil.invoke(visitor, target);
+        storeResult(visitor, target.getReturnType(), v -> v.visitVarInsn(Opcodes.ILOAD, index));
+        visitor.visitIincInsn(index, 1);
+        visitor.visitJumpInsn(Opcodes.GOTO, head);
+        // }
+        visitor.visitLabel(end);
+        visitor.visitInsn(Opcodes.RETURN);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    static byte[] generate(String name,
+                           Class<?> packed,
+                           Method target,
+                           ConstantTable constants,
+                           MemberAccess[][] accesses) {
+        // Loop needs stack map frames, merged types are resolved with the loader of packed type
+        var writer = new LocalVariablesWriter(ClassWriter.COMPUTE_FRAMES, packed.getClassLoader());
+        writer.visit(
+                Opcodes.V11,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+                name,
+                null,
+                AsmUtil.OBJECT_NAME,
+                new String[]{BATCH_FUNCTION}
+        );
+        AsmUtil.createEmptyConstructor(writer);
+        var array = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                BATCH_ARRAY_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateBatchMethod(array, packed, target, constants, accesses, false);
+        var list = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                BATCH_LIST_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateBatchMethod(list, packed, target, constants, accesses, true);
+        constants.write(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
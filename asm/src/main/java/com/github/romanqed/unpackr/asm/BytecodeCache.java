@@ -0,0 +1,109 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+final class BytecodeCache {
+    private static final int MAGIC = 0x554E504B;
+    // Must be increased whenever generated code changes for the same fingerprint,
+    // 2 - primitive and boxed conversions of unpacked values
+    private static final int VERSION = 2;
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+    private static final String EXTENSION = ".unpackr";
+    private final Path directory;
+
+    BytecodeCache(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create bytecode cache directory " + directory, e);
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        var crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private Path path(String name) {
+        // Names are fingerprints with a package prefix, so they are valid file names once slashes are gone
+        return directory.resolve(name.replace('/', '.') + EXTENSION);
+    }
+
+    byte[] load(String name) {
+        var path = path(name);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (var input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !name.equals(input.readUTF())) {
+                return null;
+            }
+            var length = input.readInt();
+            if (length < 4 || length != input.available() - Long.BYTES) {
+                return null;
+            }
+            var ret = new byte[length];
+            input.readFully(ret);
+            if (input.readLong() != checksum(ret)) {
+                return null;
+            }
+            var magic = ((ret[0] & 0xFF) << 24) | ((ret[1] & 0xFF) << 16) | ((ret[2] & 0xFF) << 8) | (ret[3] & 0xFF);
+            return magic == CLASS_MAGIC ? ret : null;
+        } catch (IOException e) {
+            // Broken entries are regenerated and overwritten
+            return null;
+        }
+    }
+
+    void evict(String name) {
+        try {
+            Files.deleteIfExists(path(name));
+        } catch (IOException ignored) {
+            // Entry stays, so the class fails to load again on the next start
+        }
+    }
+
+    void store(String name, byte[] bytes) {
+        var buffer = new ByteArrayOutputStream(bytes.length + 64);
+        try (var output = new DataOutputStream(buffer)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(name);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            output.writeLong(checksum(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        var path = path(name);
+        Path temporary = null;
+        try {
+            // Readers see either no entry or a complete one
+            temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            Files.write(temporary, buffer.toByteArray());
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Cache is best effort, the class is generated again on the next start
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.romanqed.unpackr.asm;
+
+final class CastNode extends Node {
+    final Class<?> type;
+
+    CastNode(Class<?> type) {
+        this.type = type;
+    }
+
+    @Override
+    void accept(NodeVisitor visitor) {
+        visitor.visit(this);
+        if (children == null) {
+            return;
+        }
+        for (var node : children.values()) {
+            node.accept(visitor);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class ConstantTable {
+    private static final AtomicLong COUNTER = new AtomicLong();
+    private static final String CONSTANTS = Type.getInternalName(GeneratedConstants.class);
+    private static final String GET_DESCRIPTOR = "(Ljava/lang/String;)[Ljava/lang/Object;";
+    private static final String FIELD_PREFIX = "c";
+    private static final String FIELD_DESCRIPTOR = "Ljava/lang/Object;";
+    private static final String CLINIT = "<clinit>";
+    private static final String ADDER = Type.getInternalName(LongAdder.class);
+    final String owner;
+    private final String key;
+    private final List<Object> values;
+    private final LongAdder counter;
+
+    ConstantTable(String owner, LongAdder counter) {
+        this.owner = owner;
+        this.key = owner + "#" + COUNTER.incrementAndGet();
+        this.values = new ArrayList<>();
+        this.counter = counter;
+    }
+
+    ConstantTable(String owner) {
+        this(owner, null);
+    }
+
+    private static boolean isObject(Object value) {
+        return value != null && !AsmUtil.TYPES.contains(value.getClass());
+    }
+
+    // Non-literal constants are bound by identity, so classes using them cannot be shared by fingerprint
+    static boolean hasObjects(MemberAccess[][] accesses) {
+        for (var chain : accesses) {
+            if (chain == null) {
+                continue;
+            }
+            for (var access : chain) {
+                if (access instanceof NullSafeAccess && isObject(((NullSafeAccess) access).value())) {
+                    return true;
+                }
+                if (!(access instanceof MethodAccess)) {
+                    continue;
+                }
+                var arguments = ((MethodAccess) access).arguments();
+                if (arguments == null) {
+                    continue;
+                }
+                for (var argument : arguments) {
+                    if (isObject(argument)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    static String unique(String name) {
+        return name + "$" + COUNTER.incrementAndGet();
+    }
+
+    private int indexOf(Object value) {
+        for (var i = 0; i < values.size(); ++i) {
+            if (values.get(i) == value) {
+                return i;
+            }
+        }
+        values.add(value);
+        return values.size() - 1;
+    }
+
+    void push(MethodVisitor visitor, Class<?> type, Object value) {
+        // Primitives and strings are pushed as is, other values are read from static final fields
+        if (value == null || value.getClass() == String.class || type.isPrimitive()) {
+            AsmUtil.push(visitor, type, value);
+            return;
+        }
+        var index = indexOf(value);
+        visitor.visitFieldInsn(Opcodes.GETSTATIC, owner, FIELD_PREFIX + index, FIELD_DESCRIPTOR);
+        if (type != Object.class) {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+        }
+    }
+
+    boolean isEmpty() {
+        return values.isEmpty() && counter == null;
+    }
+
+    void count(MethodVisitor visitor) {
+        // Nothing is woven in unless invocations are counted
+        if (counter == null) {
+            return;
+        }
+        push(visitor, LongAdder.class, counter);
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, ADDER, "increment", AsmUtil.EMPTY_DESCRIPTOR, false);
+    }
+
+    void invoke(MethodVisitor visitor, Class<?> receiver, Method method, Object[] arguments) {
+        if (arguments != null) {
+            var types = method.getParameterTypes();
+            for (var i = 0; i < arguments.length; ++i) {
+                push(visitor, types[i], arguments[i]);
+            }
+        }
+        AsmUtil.invoke(visitor, receiver, method);
+    }
+
+    void write(ClassWriter writer) {
+        if (values.isEmpty()) {
+            return;
+        }
+        var size = values.size();
+        for (var i = 0; i < size; ++i) {
+            writer.visitField(
+                    Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL,
+                    FIELD_PREFIX + i,
+                    FIELD_DESCRIPTOR,
+                    null,
+                    null
+            ).visitEnd();
+        }
+        var init = writer.visitMethod(Opcodes.ACC_STATIC, CLINIT, AsmUtil.EMPTY_DESCRIPTOR, null, null);
+        init.visitCode();
+        // var constants = GeneratedConstants.get(key)
+        init.visitLdcInsn(key);
+        init.visitMethodInsn(Opcodes.INVOKESTATIC, CONSTANTS, "get", GET_DESCRIPTOR, false);
+        for (var i = 0; i < size; ++i) {
+            // cN = constants[N]
+            init.visitInsn(Opcodes.DUP);
+            AsmUtil.pushInt(init, i);
+            init.visitInsn(Opcodes.AALOAD);
+            init.visitFieldInsn(Opcodes.PUTSTATIC, owner, FIELD_PREFIX + i, FIELD_DESCRIPTOR);
+        }
+        init.visitInsn(Opcodes.POP);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        GeneratedConstants.put(key, values.toArray());
+    }
+
+    void release() {
+        GeneratedConstants.remove(key);
+    }
+}
@@ -0,0 +1,197 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.CastAccess;
+import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.IndexAccess;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.MethodAccess;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+final class Conversions {
+    // Widening primitive conversions, JLS 5.1.2
+    private static final Map<Class<?>, List<Class<?>>> WIDENINGS = Map.of(
+            byte.class, List.of(short.class, int.class, long.class, float.class, double.class),
+            short.class, List.of(int.class, long.class, float.class, double.class),
+            char.class, List.of(int.class, long.class, float.class, double.class),
+            int.class, List.of(long.class, float.class, double.class),
+            long.class, List.of(float.class, double.class),
+            float.class, List.of(double.class)
+    );
+
+    private Conversions() {
+    }
+
+    static Class<?> typeOf(MemberAccess access) {
+        if (access instanceof FieldAccess) {
+            return ((FieldAccess) access).member().getType();
+        }
+        if (access instanceof MethodAccess) {
+            return ((MethodAccess) access).member().getReturnType();
+        }
+        if (access instanceof CastAccess) {
+            return ((CastAccess) access).type();
+        }
+        if (access instanceof IndexAccess) {
+            return ((IndexAccess) access).type().getComponentType();
+        }
+        return null;
+    }
+
+    static Class<?> typeOf(MemberAccess[] accesses) {
+        // Null-safe marker has no type, so the value type is the type of the last member
+        for (var i = accesses.length - 1; i >= 0; --i) {
+            var type = typeOf(accesses[i]);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWidening(Class<?> from, Class<?> to) {
+        var widenings = WIDENINGS.get(from);
+        return widenings != null && widenings.contains(to);
+    }
+
+    private static boolean isUnboxing(Class<?> from, Class<?> to) {
+        var primitive = AsmUtil.WRAPPERS.get(from);
+        if (primitive != null) {
+            // Unboxing may be followed by widening, JLS 5.3
+            return primitive == to || isWidening(primitive, to);
+        }
+        // Supertypes of the wrapper are cast to it first
+        return from.isAssignableFrom(AsmUtil.PRIMITIVES.get(to));
+    }
+
+    static boolean isConvertible(Class<?> from, Class<?> to) {
+        if (from == to) {
+            return true;
+        }
+        if (from.isPrimitive()) {
+            if (to.isPrimitive()) {
+                return isWidening(from, to);
+            }
+            return to.isAssignableFrom(AsmUtil.PRIMITIVES.get(from));
+        }
+        if (to.isPrimitive()) {
+            return isUnboxing(from, to);
+        }
+        // References are cast as before, so downcasts of generic results keep working
+        return true;
+    }
+
+    static void check(Class<?> from, Class<?> to) {
+        if (!isConvertible(from, to)) {
+            throw new IllegalArgumentException("Cannot convert " + from + " to " + to);
+        }
+    }
+
+    static void check(Method target, MemberAccess[][] accesses) {
+        var parameters = target.getParameterTypes();
+        for (var i = 0; i < parameters.length; ++i) {
+            if (accesses[i] == null) {
+                continue;
+            }
+            // Empty chains pass the packed object, which is checked when arguments are loaded
+            var type = typeOf(accesses[i]);
+            if (type != null) {
+                check(type, parameters[i]);
+            }
+        }
+    }
+
+    static boolean isBranching(Method target, MemberAccess[][] accesses) {
+        // Unboxing checks for null, so the code needs stack map frames
+        var parameters = target.getParameterTypes();
+        for (var i = 0; i < parameters.length; ++i) {
+            if (accesses[i] == null || !parameters[i].isPrimitive()) {
+                continue;
+            }
+            var type = typeOf(accesses[i]);
+            if (type != null && !type.isPrimitive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void widen(MethodVisitor visitor, Class<?> from, Class<?> to) {
+        if (from == to) {
+            return;
+        }
+        if (from == long.class) {
+            visitor.visitInsn(to == float.class ? Opcodes.L2F : Opcodes.L2D);
+        } else if (from == float.class) {
+            visitor.visitInsn(Opcodes.F2D);
+        } else if (to == long.class) {
+            visitor.visitInsn(Opcodes.I2L);
+        } else if (to == float.class) {
+            visitor.visitInsn(Opcodes.I2F);
+        } else if (to == double.class) {
+            visitor.visitInsn(Opcodes.I2D);
+        }
+        // Byte, short and char are already ints on the stack
+    }
+
+    private static void unbox(MethodVisitor visitor, Class<?> from, Class<?> to) {
+        var primitive = AsmUtil.WRAPPERS.get(from);
+        if (primitive == null) {
+            primitive = to;
+            from = AsmUtil.PRIMITIVES.get(to);
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(from));
+        }
+        visitor.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                Type.getInternalName(from),
+                primitive.getName() + "Value",
+                Type.getMethodDescriptor(Type.getType(primitive)),
+                false
+        );
+        widen(visitor, primitive, to);
+    }
+
+    private static void pushZero(MethodVisitor visitor, Class<?> type) {
+        if (type == long.class) {
+            visitor.visitInsn(Opcodes.LCONST_0);
+        } else if (type == float.class) {
+            visitor.visitInsn(Opcodes.FCONST_0);
+        } else if (type == double.class) {
+            visitor.visitInsn(Opcodes.DCONST_0);
+        } else {
+            visitor.visitInsn(Opcodes.ICONST_0);
+        }
+    }
+
+    static void convert(MethodVisitor visitor, Class<?> from, Class<?> to) {
+        if (!to.isPrimitive()) {
+            // Primitive values are boxed into their own wrapper, which is checked to fit the parameter
+            AsmUtil.packPrimitive(visitor, from);
+            if (!from.isPrimitive()) {
+                visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(to));
+            }
+            return;
+        }
+        if (from.isPrimitive()) {
+            widen(visitor, from, to);
+            return;
+        }
+        // Missing value is passed as zero, as javac would fail with NullPointerException instead
+        var present = new Label();
+        var done = new Label();
+        visitor.visitInsn(Opcodes.DUP);
+        visitor.visitJumpInsn(Opcodes.IFNONNULL, present);
+        visitor.visitInsn(Opcodes.POP);
+        pushZero(visitor, to);
+        visitor.visitJumpInsn(Opcodes.GOTO, done);
+        visitor.visitLabel(present);
+        unbox(visitor, from, to);
+        visitor.visitLabel(done);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.romanqed.unpackr.asm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.github.romanqed.unpackr.Definition")
+@Label("Unpacker Definition")
+@Category("Unpackr")
+final class DefinitionEvent extends Event {
+    @Label("Class Name")
+    String name;
+
+    @Label("Definition Time")
+    @Timespan
+    long definitionTime;
+}
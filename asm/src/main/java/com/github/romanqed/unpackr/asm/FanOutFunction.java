@@ -0,0 +1,35 @@
+package com.github.romanqed.unpackr.asm;
+
+/**
+ * A function that unpacks a packed object once and invokes several target methods with it.
+ * <p>
+ * Implementations are generated by {@link AsmUnpacker#unpackFanOut(Class, java.util.List)}, so access chains
+ * shared by different targets are evaluated only once per invocation, and targets are called in the order
+ * of their specs.
+ *
+ * @param <T> the type of packed objects
+ */
+public interface FanOutFunction<T> {
+
+    /**
+     * Invokes all target methods with values unpacked from the packed object.
+     *
+     * @param owners  the target method owners, at the same indexes as specs; ignored for static targets
+     * @param packed  the packed object
+     * @param results the array to store results into, at the same indexes as specs,
+     *                or {@code null} to discard them
+     * @throws Throwable if any target method or access chain throws
+     */
+    void invoke(Object[] owners, T packed, Object[] results) throws Throwable;
+
+    /**
+     * Invokes all target methods with values unpacked from the packed object, discarding results.
+     *
+     * @param owners the target method owners, at the same indexes as specs; ignored for static targets
+     * @param packed the packed object
+     * @throws Throwable if any target method or access chain throws
+     */
+    default void invoke(Object[] owners, T packed) throws Throwable {
+        invoke(owners, packed, null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.UnpackSpec;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.function.Consumer;
+
+final class FanOutGenerator {
+    private static final String FAN_OUT_FUNCTION = Type.getInternalName(FanOutFunction.class);
+    private static final String FAN_OUT_DESCRIPTOR = "([Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)V";
+
+    private FanOutGenerator() {
+    }
+
+    private static void generateFanOutMethod(LocalVariablesSorter visitor,
+                                             Class<?> packed,
+                                             List<UnpackSpec> specs,
+                                             ConstantTable constants,
+                                             MemberAccess[][] accesses) {
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        // var element = (Packed) packed
+        var packedType = Type.getType(packed);
+        var element = visitor.newLocal(packedType);
+        visitor.visitVarInsn(Opcodes.ALOAD, 2);
+        visitor.visitTypeInsn(Opcodes.CHECKCAST, packedType.getInternalName());
+        visitor.visitVarInsn(Opcodes.ASTORE, element);
+        Consumer<MethodVisitor> root = v -> v.visitVarInsn(Opcodes.ALOAD, element);
+        // Evaluate nodes shared by all targets once and prepare arg loaders
+        var node = NodeUtil.of(packed, accesses, new int[1]);
+        var nodeVisitor = (AsmNodeVisitor) null;
+        if (node.size() != 0) {
+            node.accessor = root;
+            nodeVisitor = new AsmNodeVisitor(visitor, constants, accesses);
+            node.accept(nodeVisitor);
+        }
+        // Call targets in order, arguments are indexed through all specs
+        var offset = 0;
+        for (var i = 0; i < specs.size(); ++i) {
+            var target = specs.get(i).target();
+            var index = i;
+            if (!Modifier.isStatic(target.getModifiers())) {
+                // (Owner) owners[index]
+                visitor.visitVarInsn(Opcodes.ALOAD, 1);
+                AsmUtil.pushInt(visitor, index);
+                visitor.visitInsn(Opcodes.AALOAD);
+                visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(target.getDeclaringClass()));
+            }
+            UnpackGenerator.loadArguments(visitor, packed, target, root, nodeVisitor, offset);
+            AsmUtil.invoke(visitor, target);
+            BatchGenerator.storeResult(visitor, target.getReturnType(), v -> AsmUtil.pushInt(v, index));
+            offset += target.getParameterCount();
+        }
+        visitor.visitInsn(Opcodes.RETURN);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    static byte[] generate(String name,
+                           Class<?> packed,
+                           List<UnpackSpec> specs,
+                           ConstantTable constants,
+                           MemberAccess[][] accesses) {
+        // Result stores branch, so stack map frames are required
+        var writer = new LocalVariablesWriter(ClassWriter.COMPUTE_FRAMES, packed.getClassLoader());
+        writer.visit(
+                Opcodes.V11,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+                name,
+                null,
+                AsmUtil.OBJECT_NAME,
+                new String[]{FAN_OUT_FUNCTION}
+        );
+        AsmUtil.createEmptyConstructor(writer);
+        var visitor = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                FAN_OUT_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateFanOutMethod(visitor, packed, specs, constants, accesses);
+        constants.write(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static MemberAccess[][] merge(Class<?> packed, List<UnpackSpec> specs) {
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("Fan-out requires at least one spec");
+        }
+        var count = 0;
+        for (var spec : specs) {
+            if (spec.packed() != packed) {
+                throw new IllegalArgumentException("Mismatched packed types: " + spec.packed() + ", " + packed);
+            }
+            AsmUnpacker.checkTarget(spec.target(), spec.accesses());
+            count += spec.target().getParameterCount();
+        }
+        var ret = new MemberAccess[count][];
+        var offset = 0;
+        for (var spec : specs) {
+            var accesses = spec.accesses();
+            System.arraycopy(accesses, 0, ret, offset, accesses.length);
+            offset += accesses.length;
+        }
+        return ret;
+    }
+}
@@ -4,9 +4,12 @@ import java.lang.reflect.Field;
 
 final class FieldNode extends Node {
     final Field field;
+    // Type of the value the member is accessed on
+    final Class<?> receiver;
 
-    FieldNode(Field field) {
+    FieldNode(Field field, Class<?> receiver) {
         this.field = field;
+        this.receiver = receiver;
     }
 
     @Override
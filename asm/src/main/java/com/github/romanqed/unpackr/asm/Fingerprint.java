@@ -0,0 +1,193 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.CastAccess;
+import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.IndexAccess;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.MemberAccessVisitor;
+import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
+import com.github.romanqed.unpackr.UnpackSpec;
+import com.github.romanqed.unpackr.WriteAccess;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+
+final class Fingerprint implements MemberAccessVisitor {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int LENGTH = 16;
+    private final StringBuilder builder;
+
+    private Fingerprint() {
+        this.builder = new StringBuilder();
+    }
+
+    static String of(Class<?> type, Class<?> packed, Method target, MemberAccess[][] accesses) {
+        var fingerprint = new Fingerprint();
+        fingerprint.append(type);
+        fingerprint.append(packed);
+        fingerprint.append(target);
+        for (var access : accesses) {
+            fingerprint.append(access);
+        }
+        return fingerprint.digest();
+    }
+
+    static String of(Class<?> type, Class<?> packed, MemberAccess[][] accesses) {
+        var fingerprint = new Fingerprint();
+        fingerprint.append(type);
+        fingerprint.append(packed);
+        fingerprint.builder.append('W').append(accesses.length).append(':');
+        for (var access : accesses) {
+            fingerprint.append(access);
+        }
+        return fingerprint.digest();
+    }
+
+    static String of(Class<?> type, Class<?> packed, List<UnpackSpec> specs) {
+        var fingerprint = new Fingerprint();
+        fingerprint.append(type);
+        fingerprint.append(packed);
+        fingerprint.builder.append('L').append(specs.size()).append(':');
+        for (var spec : specs) {
+            fingerprint.append(spec.target());
+            var accesses = spec.accesses();
+            fingerprint.builder.append('A').append(accesses.length).append(':');
+            for (var access : accesses) {
+                fingerprint.append(access);
+            }
+        }
+        return fingerprint.digest();
+    }
+
+    static String of(Class<?> type, Class<?> packed, Collection<Route> routes) {
+        var fingerprint = new Fingerprint();
+        fingerprint.append(type);
+        fingerprint.append(packed);
+        fingerprint.builder.append('R').append(routes.size()).append(':');
+        for (var route : routes) {
+            fingerprint.appendValue(route.key);
+            fingerprint.append(route.target);
+            fingerprint.builder.append('A').append(route.accesses.length).append(':');
+            for (var access : route.accesses) {
+                fingerprint.append(access);
+            }
+        }
+        return fingerprint.digest();
+    }
+
+    private static void appendHex(StringBuilder builder, byte[] bytes) {
+        for (var i = 0; i < LENGTH; ++i) {
+            var value = bytes[i] & 0xFF;
+            builder.append(HEX[value >>> 4]).append(HEX[value & 0x0F]);
+        }
+    }
+
+    private void append(String value) {
+        // Length prefix makes concatenation unambiguous
+        builder.append(value.length()).append(':').append(value);
+    }
+
+    private void append(Class<?> type) {
+        builder.append('T');
+        append(Type.getDescriptor(type));
+    }
+
+    private void append(Method method) {
+        // Invocation opcode depends on these flags, so persisted classes must not be shared between them
+        var owner = method.getDeclaringClass();
+        builder.append(Modifier.isStatic(method.getModifiers()) ? 'S' : 'M');
+        builder.append(owner.isInterface() ? 'I' : 'C');
+        append(Type.getInternalName(owner));
+        append(method.getName());
+        append(Type.getMethodDescriptor(method));
+    }
+
+    private void append(Object[] arguments) {
+        if (arguments == null) {
+            builder.append('N');
+            return;
+        }
+        builder.append('A').append(arguments.length).append(':');
+        for (var argument : arguments) {
+            appendValue(argument);
+        }
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            builder.append('N');
+            return;
+        }
+        append(value.getClass());
+        append(value.toString());
+    }
+
+    private void append(MemberAccess[] accesses) {
+        if (accesses == null) {
+            builder.append('P');
+            return;
+        }
+        builder.append('C').append(accesses.length).append(':');
+        for (var access : accesses) {
+            access.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(FieldAccess access) {
+        var field = access.member();
+        builder.append('F');
+        append(Type.getInternalName(field.getDeclaringClass()));
+        append(field.getName());
+        append(Type.getDescriptor(field.getType()));
+    }
+
+    @Override
+    public void visit(MethodAccess access) {
+        append(access.member());
+        append(access.arguments());
+    }
+
+    @Override
+    public void visit(CastAccess access) {
+        builder.append('K');
+        append(access.type());
+    }
+
+    @Override
+    public void visit(IndexAccess access) {
+        builder.append('X').append(access.index()).append(':');
+        append(access.type());
+    }
+
+    @Override
+    public void visit(NullSafeAccess access) {
+        builder.append('S');
+        appendValue(access.value());
+    }
+
+    @Override
+    public void visit(WriteAccess access) {
+        builder.append('E');
+    }
+
+    private String digest() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        var bytes = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+        var ret = new StringBuilder(LENGTH * 2);
+        appendHex(ret, bytes);
+        return ret.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.jfunc.Function2;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+final class FunctionType {
+    static final FunctionType FUNCTION2 = of(Function2.class);
+    final Class<?> type;
+    final Method method;
+    final Class<?> owner;
+    final Class<?> packed;
+    final int ownerIndex;
+    final int packedIndex;
+
+    private FunctionType(Class<?> type, Method method) {
+        this.type = type;
+        this.method = method;
+        var parameters = method.getParameterTypes();
+        if (parameters.length == 2) {
+            this.owner = parameters[0];
+            this.packed = parameters[1];
+            this.ownerIndex = 1;
+            this.packedIndex = 2;
+        } else {
+            this.owner = null;
+            this.packed = parameters[0];
+            this.ownerIndex = -1;
+            this.packedIndex = 1;
+        }
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean overrides(Method method, Method other) {
+        var owner = method.getDeclaringClass();
+        var declaring = other.getDeclaringClass();
+        if (owner == declaring
+                || !declaring.isAssignableFrom(owner)
+                || !method.getName().equals(other.getName())
+                || method.getParameterCount() != other.getParameterCount()) {
+            return false;
+        }
+        // Subinterfaces may narrow generic parameters, e.g. apply(Ctx) declared for Function<Ctx, Object>
+        var parameters = method.getParameterTypes();
+        var overridden = other.getParameterTypes();
+        for (var i = 0; i < parameters.length; ++i) {
+            if (!overridden[i].isAssignableFrom(parameters[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOverridden(Method method, Method[] methods) {
+        for (var other : methods) {
+            if (overrides(other, method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Method findAbstractMethod(Class<?> type) {
+        var methods = type.getMethods();
+        var ret = (Method) null;
+        for (var method : methods) {
+            if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            // Only the most specific declaration is implemented
+            if (isOverridden(method, methods)) {
+                continue;
+            }
+            if (ret != null) {
+                throw new IllegalArgumentException("Functional interface must have exactly one abstract method: " + type);
+            }
+            ret = method;
+        }
+        if (ret == null) {
+            throw new IllegalArgumentException("Functional interface has no abstract methods: " + type);
+        }
+        return ret;
+    }
+
+    static FunctionType of(Class<?> type) {
+        if (!type.isInterface() || !Modifier.isPublic(type.getModifiers())) {
+            throw new IllegalArgumentException("Function type must be a public interface: " + type);
+        }
+        var method = findAbstractMethod(type);
+        var parameters = method.getParameterTypes();
+        if (parameters.length < 1 || parameters.length > 2) {
+            throw new IllegalArgumentException(
+                    "Functional method must accept (owner, packed) or (packed) parameters: " + method
+            );
+        }
+        for (var parameter : parameters) {
+            if (parameter.isPrimitive()) {
+                throw new IllegalArgumentException("Functional method parameters must not be primitive: " + method);
+            }
+        }
+        return new FunctionType(type, method);
+    }
+
+    String internalName() {
+        return Type.getInternalName(type);
+    }
+
+    String descriptor() {
+        return Type.getMethodDescriptor(method);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry passing object constants to generated unpacker classes.
+ * <p>
+ * Constants are registered right before a generated class is defined and read by its static initializer
+ * into {@code static final} fields, so the JIT treats them as true constants. They are removed as soon as
+ * the class is initialized. This class is public only to be accessible from generated code
+ * and is not intended to be used directly.
+ */
+public final class GeneratedConstants {
+    private static final Map<String, Object[]> CONSTANTS = new ConcurrentHashMap<>();
+
+    private GeneratedConstants() {
+    }
+
+    static void put(String key, Object[] values) {
+        CONSTANTS.put(key, values);
+    }
+
+    static void remove(String key) {
+        CONSTANTS.remove(key);
+    }
+
+    /**
+     * Returns the constants registered for a generated class.
+     *
+     * @param key the key embedded into the generated class
+     * @return the array of constants
+     * @throws IllegalStateException if the constants are not registered
+     */
+    public static Object[] get(String key) {
+        var ret = CONSTANTS.get(key);
+        if (ret == null) {
+            throw new IllegalStateException("Constants are not registered: " + key);
+        }
+        return ret;
+    }
+}
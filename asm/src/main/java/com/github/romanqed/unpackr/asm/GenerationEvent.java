@@ -0,0 +1,30 @@
+package com.github.romanqed.unpackr.asm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.github.romanqed.unpackr.Generation")
+@Label("Unpacker Generation")
+@Category("Unpackr")
+final class GenerationEvent extends Event {
+    @Label("Class Name")
+    String name;
+
+    @Label("Generation Time")
+    @Timespan
+    long generationTime;
+
+    @Label("Bytecode Size")
+    @DataAmount
+    int bytes;
+
+    @Label("Access Nodes")
+    int nodes;
+
+    @Label("Local Slots")
+    int locals;
+}
@@ -0,0 +1,22 @@
+package com.github.romanqed.unpackr.asm;
+
+final class IndexNode extends Node {
+    final Class<?> type;
+    final int index;
+
+    IndexNode(Class<?> type, int index) {
+        this.type = type;
+        this.index = index;
+    }
+
+    @Override
+    void accept(NodeVisitor visitor) {
+        visitor.visit(this);
+        if (children == null) {
+            return;
+        }
+        for (var node : children.values()) {
+            node.accept(visitor);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link UnpackerMetrics} implementation that emits JDK Flight Recorder events.
+ * <p>
+ * Generation and definition of every class is recorded as {@code com.github.romanqed.unpackr.Generation}
+ * and {@code com.github.romanqed.unpackr.Definition} events, which cost nothing unless a recording
+ * enables them. Invocation counting is optional, counters are striped {@link LongAdder}s shared
+ * by classes generated for equal specs.
+ * <p>
+ * The {@code jdk.jfr} module is an optional dependency, so modular applications using this class
+ * must resolve it, for example with {@code --add-modules jdk.jfr}.
+ *
+ * <pre>{@code
+ * var metrics = new JfrUnpackerMetrics(true);
+ * var unpacker = new AsmUnpacker(new DefineClassLoader()).withMetrics(metrics);
+ * }</pre>
+ */
+public final class JfrUnpackerMetrics implements UnpackerMetrics {
+    private final Map<String, LongAdder> counters;
+
+    /**
+     * Constructs a new {@code JfrUnpackerMetrics}.
+     *
+     * @param countInvocations whether invocation counters should be woven into generated code
+     */
+    public JfrUnpackerMetrics(boolean countInvocations) {
+        this.counters = countInvocations ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Constructs a new {@code JfrUnpackerMetrics} without invocation counting.
+     */
+    public JfrUnpackerMetrics() {
+        this(false);
+    }
+
+    /**
+     * Returns the current invocation counts by class names, the same for equal specs.
+     *
+     * @return the snapshot of invocation counts, empty if counting is disabled
+     */
+    public Map<String, Long> invocations() {
+        if (counters == null) {
+            return Map.of();
+        }
+        var ret = new HashMap<String, Long>();
+        counters.forEach((name, counter) -> ret.put(name, counter.sum()));
+        return Collections.unmodifiableMap(ret);
+    }
+
+    @Override
+    public void onGenerated(String name, long nanos, int bytes, int nodes, int locals) {
+        var event = new GenerationEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.name = name;
+        event.generationTime = nanos;
+        event.bytes = bytes;
+        event.nodes = nodes;
+        event.locals = locals;
+        event.commit();
+    }
+
+    @Override
+    public void onDefined(String name, long nanos) {
+        var event = new DefinitionEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.name = name;
+        event.definitionTime = nanos;
+        event.commit();
+    }
+
+    @Override
+    public LongAdder counter(String name) {
+        return counters == null ? null : counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+}
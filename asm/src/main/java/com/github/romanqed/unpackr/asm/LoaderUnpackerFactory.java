@@ -0,0 +1,27 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.jeflect.loader.ObjectFactory;
+import com.github.romanqed.jfunc.Function2;
+
+import java.util.function.Supplier;
+
+@SuppressWarnings("rawtypes")
+final class LoaderUnpackerFactory implements UnpackerFactory {
+    private final ObjectFactory<Function2> factory;
+
+    LoaderUnpackerFactory(ObjectFactory<Function2> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public String qualify(String name) {
+        return name;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object create(String name, Supplier<byte[]> generator) {
+        // Generated classes may implement any functional interface, not only Function2
+        return ((ObjectFactory) factory).create(name, generator::get);
+    }
+}
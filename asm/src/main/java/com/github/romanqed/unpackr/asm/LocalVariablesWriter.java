@@ -3,8 +3,20 @@ package com.github.romanqed.unpackr.asm;
 import org.objectweb.asm.ClassWriter;
 
 class LocalVariablesWriter extends ClassWriter {
-    public LocalVariablesWriter(int flags) {
+    private final ClassLoader loader;
+
+    public LocalVariablesWriter(int flags, ClassLoader loader) {
         super(flags);
+        this.loader = loader;
+    }
+
+    public LocalVariablesWriter(int flags) {
+        this(flags, null);
+    }
+
+    @Override
+    protected ClassLoader getClassLoader() {
+        return loader == null ? super.getClassLoader() : loader;
     }
 
     public LocalVariablesSorter visitMethodWithLocals(final int access,
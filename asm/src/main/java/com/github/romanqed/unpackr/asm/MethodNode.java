@@ -4,11 +4,14 @@ import java.lang.reflect.Method;
 
 final class MethodNode extends Node {
     final Method method;
+    // Type of the value the member is accessed on
+    final Class<?> receiver;
     final Object[] arguments;
 
-    MethodNode(Method method, Object[] arguments) {
+    MethodNode(Method method, Object[] arguments, Class<?> receiver) {
         this.method = method;
         this.arguments = arguments;
+        this.receiver = receiver;
     }
 
     @Override
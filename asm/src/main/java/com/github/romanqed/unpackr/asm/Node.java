@@ -13,21 +13,44 @@ class Node {
     Map<MemberAccess, Node> children;
     List<Integer> indexes;
     Consumer<MethodVisitor> accessor;
+    Node safe;
+    boolean nullSafe;
 
     void accept(NodeVisitor visitor) {
-        if (children == null) {
-            return;
+        if (children != null) {
+            for (var node : children.values()) {
+                node.accept(visitor);
+            }
         }
-        for (var node : children.values()) {
-            node.accept(visitor);
+        if (safe != null) {
+            safe.accept(visitor);
         }
     }
 
     void attach(MemberAccess access, Node node) {
         node.parent = this;
+        node.nullSafe = nullSafe;
         if (children == null) {
             children = new HashMap<>();
         }
         children.put(access, node);
     }
+
+    Node safe() {
+        if (safe == null) {
+            safe = new Node();
+            safe.parent = this;
+            safe.nullSafe = true;
+            safe.accessor = v -> accessor.accept(v);
+        }
+        return safe;
+    }
+
+    int size() {
+        var ret = children == null ? 0 : children.size();
+        if (safe != null) {
+            ret += safe.size();
+        }
+        return ret;
+    }
 }
@@ -1,8 +1,11 @@
 package com.github.romanqed.unpackr.asm;
 
+import com.github.romanqed.unpackr.CastAccess;
 import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.IndexAccess;
 import com.github.romanqed.unpackr.MemberAccess;
 import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
 
 import java.util.LinkedList;
 
@@ -10,7 +13,7 @@ final class NodeUtil {
     private NodeUtil() {
     }
 
-    static Node of(MemberAccess[][] accesses, int[] out) {
+    static Node of(Class<?> packed, MemberAccess[][] accesses, int[] out) {
         var ret = new Node();
         var count = 0;
         for (var i = 0; i < accesses.length; ++i) {
@@ -19,31 +22,71 @@ final class NodeUtil {
                 ++count;
                 continue;
             }
-            add(ret, access, i);
+            add(ret, packed, access, i);
         }
         out[0] = count;
         return ret;
     }
 
-    private static Node of(MemberAccess access) {
+    private static Node of(MemberAccess access, Class<?> receiver) {
         if (access.getClass() == FieldAccess.class) {
             var field = (FieldAccess) access;
-            return new FieldNode(field.member());
+            return new FieldNode(field.member(), receiver);
+        }
+        if (access.getClass() == CastAccess.class) {
+            return new CastNode(((CastAccess) access).type());
+        }
+        if (access.getClass() == IndexAccess.class) {
+            var index = (IndexAccess) access;
+            return new IndexNode(index.type(), index.index());
         }
         var method = (MethodAccess) access;
-        return new MethodNode(method.member(), method.arguments());
+        return new MethodNode(method.member(), method.arguments(), receiver);
     }
 
-    private static void add(Node root, MemberAccess[] accesses, int index) {
+    private static int count(Node node) {
+        var ret = 0;
+        if (node.children != null) {
+            for (var child : node.children.values()) {
+                ret += 1 + count(child);
+            }
+        }
+        if (node.safe != null) {
+            ret += count(node.safe);
+        }
+        return ret;
+    }
+
+    static int count(MemberAccess[][] accesses) {
+        return count(of(Object.class, accesses, new int[1]));
+    }
+
+    static boolean isNullSafe(MemberAccess[][] accesses) {
         for (var access : accesses) {
+            if (NullSafeAccess.find(access) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void add(Node root, Class<?> packed, MemberAccess[] accesses, int index) {
+        var length = accesses.length;
+        if (NullSafeAccess.find(accesses) != null) {
+            root = root.safe();
+            --length;
+        }
+        // Members are accessed on the type of the previous value, not on their declaring class
+        var receiver = packed;
+        for (var i = 0; i < length; ++i) {
+            var access = accesses[i];
             var found = root.children == null ? null : root.children.get(access);
-            if (found != null) {
-                root = found;
-                continue;
+            if (found == null) {
+                found = of(access, receiver);
+                root.attach(access, found);
             }
-            var node = of(access);
-            root.attach(access, node);
-            root = node;
+            root = found;
+            receiver = Conversions.typeOf(access);
         }
         if (root.indexes == null) {
             root.indexes = new LinkedList<>();
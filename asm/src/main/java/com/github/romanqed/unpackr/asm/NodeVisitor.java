@@ -5,4 +5,8 @@ interface NodeVisitor {
     void visit(FieldNode node);
 
     void visit(MethodNode node);
+
+    void visit(CastNode node);
+
+    void visit(IndexNode node);
 }
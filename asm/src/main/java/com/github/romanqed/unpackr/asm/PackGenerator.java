@@ -0,0 +1,166 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.PackFunction;
+import com.github.romanqed.unpackr.WriteAccess;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+final class PackGenerator {
+    private static final String PACK_FUNCTION = Type.getInternalName(PackFunction.class);
+    private static final String PACK_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)V";
+
+    private PackGenerator() {
+    }
+
+    static MemberAccess[][] split(MemberAccess[][] accesses) {
+        if (accesses.length == 0) {
+            throw new IllegalArgumentException("Packer requires at least one access chain");
+        }
+        var ret = new MemberAccess[accesses.length][];
+        for (var i = 0; i < accesses.length; ++i) {
+            var chain = accesses[i];
+            if (WriteAccess.find(chain) == null || chain.length < 2) {
+                throw new IllegalArgumentException("Access chain must end with a write: " + i);
+            }
+            var write = chain[chain.length - 2];
+            if (write instanceof FieldAccess) {
+                var modifiers = ((FieldAccess) write).member().getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                    throw new IllegalArgumentException("Written fields must be non-static and non-final: " + i);
+                }
+            } else if (write instanceof MethodAccess) {
+                var method = ((MethodAccess) write).member();
+                var arguments = ((MethodAccess) write).arguments();
+                var count = arguments == null ? 0 : arguments.length;
+                if (Modifier.isStatic(method.getModifiers()) || count + 1 != method.getParameterCount()) {
+                    throw new IllegalArgumentException("Write method must accept the value as last parameter: " + i);
+                }
+            } else {
+                throw new IllegalArgumentException("Access chain must end with a write: " + i);
+            }
+            // Prefixes are navigated by the access tree, writes are generated separately
+            ret[i] = chain.length == 2 ? null : Arrays.copyOf(chain, chain.length - 2);
+        }
+        return ret;
+    }
+
+    private static void generateWrite(MethodVisitor visitor,
+                                      Class<?> receiver,
+                                      MemberAccess write,
+                                      int index,
+                                      ConstantTable constants) {
+        // Value is converted the same way as unpacked arguments, null becomes zero for primitives
+        Consumer<Class<?>> value = type -> {
+            visitor.visitVarInsn(Opcodes.ALOAD, 2);
+            AsmUtil.pushInt(visitor, index);
+            visitor.visitInsn(Opcodes.AALOAD);
+            Conversions.convert(visitor, Object.class, type);
+        };
+        if (write instanceof FieldAccess) {
+            var field = ((FieldAccess) write).member();
+            value.accept(field.getType());
+            visitor.visitFieldInsn(
+                    Opcodes.PUTFIELD,
+                    Type.getInternalName(AsmUtil.owner(receiver, field)),
+                    field.getName(),
+                    Type.getDescriptor(field.getType())
+            );
+            return;
+        }
+        var access = (MethodAccess) write;
+        var method = access.member();
+        var arguments = access.arguments();
+        var types = method.getParameterTypes();
+        if (arguments != null) {
+            for (var i = 0; i < arguments.length; ++i) {
+                constants.push(visitor, types[i], arguments[i]);
+            }
+        }
+        value.accept(types[types.length - 1]);
+        AsmUtil.invoke(visitor, receiver, method);
+        // Setter results, such as previous map values or fluent owners, are discarded
+        var type = method.getReturnType();
+        if (type != void.class) {
+            visitor.visitInsn(type == long.class || type == double.class ? Opcodes.POP2 : Opcodes.POP);
+        }
+    }
+
+    private static void generatePackMethod(LocalVariablesSorter visitor,
+                                           Class<?> packed,
+                                           ConstantTable constants,
+                                           MemberAccess[][] writes,
+                                           MemberAccess[][] prefixes) {
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        // var element = (Packed) packed
+        var packedType = Type.getType(packed);
+        var element = visitor.newLocal(packedType);
+        visitor.visitVarInsn(Opcodes.ALOAD, 1);
+        visitor.visitTypeInsn(Opcodes.CHECKCAST, packedType.getInternalName());
+        visitor.visitVarInsn(Opcodes.ASTORE, element);
+        Consumer<MethodVisitor> root = v -> v.visitVarInsn(Opcodes.ALOAD, element);
+        // Evaluate prefixes shared by several writes once and prepare owner loaders
+        var node = NodeUtil.of(packed, prefixes, new int[1]);
+        var nodeVisitor = (AsmNodeVisitor) null;
+        if (node.size() != 0) {
+            node.accessor = root;
+            nodeVisitor = new AsmNodeVisitor(visitor, constants, prefixes);
+            node.accept(nodeVisitor);
+        }
+        // Write values in order
+        for (var i = 0; i < writes.length; ++i) {
+            var chain = writes[i];
+            // Written member precedes the write marker
+            var write = chain[chain.length - 2];
+            var prefix = prefixes[i];
+            var receiver = prefix == null ? packed : Conversions.typeOf(prefix);
+            if (nodeVisitor == null || !nodeVisitor.load(i, AsmUtil.owner(receiver, write.member()))) {
+                root.accept(visitor);
+            }
+            generateWrite(visitor, receiver, write, i, constants);
+        }
+        visitor.visitInsn(Opcodes.RETURN);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    static byte[] generate(String name,
+                           Class<?> packed,
+                           ConstantTable constants,
+                           MemberAccess[][] writes,
+                           MemberAccess[][] prefixes) {
+        // Unboxing of values branches on null, so stack map frames are required
+        var writer = new LocalVariablesWriter(ClassWriter.COMPUTE_FRAMES, packed.getClassLoader());
+        writer.visit(
+                Opcodes.V11,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+                name,
+                null,
+                AsmUtil.OBJECT_NAME,
+                new String[]{PACK_FUNCTION}
+        );
+        AsmUtil.createEmptyConstructor(writer);
+        var visitor = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                PACK_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generatePackMethod(visitor, packed, constants, writes, prefixes);
+        constants.write(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
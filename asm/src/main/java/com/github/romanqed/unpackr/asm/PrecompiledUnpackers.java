@@ -0,0 +1,53 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.UnpackSpec;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A registry of unpackers created by {@link AsmUnpacker#precompile(java.util.Collection, java.util.concurrent.Executor)},
+ * together with the time spent on each of them.
+ */
+@SuppressWarnings("rawtypes")
+public final class PrecompiledUnpackers {
+    private final Map<UnpackSpec, Function2> functions;
+    private final Map<UnpackSpec, Duration> timings;
+
+    PrecompiledUnpackers(Map<UnpackSpec, Function2> functions, Map<UnpackSpec, Duration> timings) {
+        this.functions = Collections.unmodifiableMap(functions);
+        this.timings = Collections.unmodifiableMap(timings);
+    }
+
+    /**
+     * Returns the unpacker created for the specified spec.
+     *
+     * @param spec the spec
+     * @param <T>  the type of the packed object
+     * @return the unpacker, or {@code null} if the spec was not precompiled
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Function2<Object, T, Object> get(UnpackSpec spec) {
+        return functions.get(spec);
+    }
+
+    /**
+     * Returns all created unpackers by their specs, in the order the specs were passed.
+     *
+     * @return the unmodifiable map of unpackers
+     */
+    public Map<UnpackSpec, Function2> functions() {
+        return functions;
+    }
+
+    /**
+     * Returns the time spent on each spec: bytecode generation on the executor and class definition.
+     *
+     * @return the unmodifiable map of timings, in the order the specs were passed
+     */
+    public Map<UnpackSpec, Duration> timings() {
+        return timings;
+    }
+}
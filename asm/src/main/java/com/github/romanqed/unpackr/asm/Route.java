@@ -0,0 +1,19 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+
+import java.lang.reflect.Method;
+
+final class Route {
+    final Object key;
+    final Object owner;
+    final Method target;
+    final MemberAccess[][] accesses;
+
+    Route(Object key, Object owner, Method target, MemberAccess[][] accesses) {
+        this.key = key;
+        this.owner = owner;
+        this.target = target;
+        this.accesses = accesses;
+    }
+}
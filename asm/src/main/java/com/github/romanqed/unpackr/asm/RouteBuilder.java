@@ -0,0 +1,102 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A builder for {@link RouteFunction}s, collecting routes from keys to target methods.
+ * <p>
+ * All routes are compiled into one generated class: int keys are dispatched by {@code tableswitch}
+ * or {@code lookupswitch}, string keys by a switch over their hash codes, the same way {@code javac}
+ * compiles {@code switch} statements. Owners of instance targets are bound at build time, so a call
+ * needs neither a map lookup nor an interface call per route.
+ *
+ * <pre>{@code
+ * var router = unpacker.routes(Ctx.class)
+ *         .route("users", usersHandler, listUsers, rqPropsAccess)
+ *         .route("orders", ordersHandler, listOrders, rqPropsAccess, rpPropsAccess)
+ *         .build();
+ * var result = router.invoke("users", ctx);
+ * }</pre>
+ *
+ * @param <T> the type of packed objects
+ * @see AsmUnpacker#routes(Class)
+ */
+public final class RouteBuilder<T> {
+    private final AsmUnpacker unpacker;
+    private final Class<T> packed;
+    private final List<Route> routes;
+    private final Set<Object> keys;
+
+    RouteBuilder(AsmUnpacker unpacker, Class<T> packed) {
+        this.unpacker = unpacker;
+        this.packed = packed;
+        this.routes = new ArrayList<>();
+        this.keys = new HashSet<>();
+    }
+
+    private RouteBuilder<T> add(Object key, Object owner, Method target, MemberAccess[][] accesses) {
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(accesses);
+        if (!keys.add(key)) {
+            throw new IllegalArgumentException("Duplicate route key: " + key);
+        }
+        AsmUnpacker.checkTarget(target, accesses);
+        if (!Modifier.isStatic(target.getModifiers()) && !target.getDeclaringClass().isInstance(owner)) {
+            keys.remove(key);
+            throw new IllegalArgumentException("Owner " + owner + " is not an instance of " + target.getDeclaringClass());
+        }
+        routes.add(new Route(key, owner, target, accesses.clone()));
+        return this;
+    }
+
+    /**
+     * Adds a route with the specified int key.
+     *
+     * @param key      the route key
+     * @param owner    the target method owner, ignored for static targets
+     * @param target   the target method to invoke
+     * @param accesses the access chains for target method parameters
+     * @return this builder instance
+     * @throws IllegalArgumentException if the key is already used, the target method is not suitable
+     *                                  or the owner is not an instance of its declaring class
+     */
+    public RouteBuilder<T> route(int key, Object owner, Method target, MemberAccess[]... accesses) {
+        return add(key, owner, target, accesses);
+    }
+
+    /**
+     * Adds a route with the specified string key.
+     *
+     * @param key      the route key, must not be {@code null}
+     * @param owner    the target method owner, ignored for static targets
+     * @param target   the target method to invoke
+     * @param accesses the access chains for target method parameters
+     * @return this builder instance
+     * @throws IllegalArgumentException if the key is already used, the target method is not suitable
+     *                                  or the owner is not an instance of its declaring class
+     */
+    public RouteBuilder<T> route(String key, Object owner, Method target, MemberAccess[]... accesses) {
+        return add(Objects.requireNonNull(key), owner, target, accesses);
+    }
+
+    /**
+     * Generates a {@link RouteFunction} dispatching all added routes.
+     *
+     * @return the generated route function
+     * @throws IllegalStateException if no routes were added
+     */
+    public RouteFunction<T> build() {
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("No routes were added");
+        }
+        return unpacker.unpackRoutes(packed, List.copyOf(routes));
+    }
+}
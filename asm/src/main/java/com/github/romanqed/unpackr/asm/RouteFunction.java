@@ -0,0 +1,34 @@
+package com.github.romanqed.unpackr.asm;
+
+/**
+ * A function that selects a target method by route key, unpacks the packed object and invokes the target.
+ * <p>
+ * Implementations are generated by {@link RouteBuilder#build()}, so the key is dispatched by a single
+ * {@code switch} and the unpacking logic of every route is inlined into its branch.
+ *
+ * @param <T> the type of packed objects
+ */
+public interface RouteFunction<T> {
+
+    /**
+     * Invokes the target method routed by the specified int key.
+     *
+     * @param key    the route key
+     * @param packed the packed object
+     * @return the result of the target method, boxed if primitive, or {@code null} for {@code void} targets
+     * @throws IllegalArgumentException if there is no route with the specified key
+     * @throws Throwable                if the target method or any access chain throws
+     */
+    Object invoke(int key, T packed) throws Throwable;
+
+    /**
+     * Invokes the target method routed by the specified string key.
+     *
+     * @param key    the route key, must not be {@code null}
+     * @param packed the packed object
+     * @return the result of the target method, boxed if primitive, or {@code null} for {@code void} targets
+     * @throws IllegalArgumentException if there is no route with the specified key
+     * @throws Throwable                if the target method or any access chain throws
+     */
+    Object invoke(String key, T packed) throws Throwable;
+}
@@ -0,0 +1,227 @@
+package com.github.romanqed.unpackr.asm;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+final class RouteGenerator {
+    private static final String ROUTE_FUNCTION = Type.getInternalName(RouteFunction.class);
+    private static final String ROUTE_INT_DESCRIPTOR = "(ILjava/lang/Object;)Ljava/lang/Object;";
+    private static final String ROUTE_STRING_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String STRING = "java/lang/String";
+    private static final String ILLEGAL_ARGUMENT = "java/lang/IllegalArgumentException";
+
+    private RouteGenerator() {
+    }
+
+    private static void generateRoute(LocalVariablesSorter visitor,
+                                      Class<?> packed,
+                                      Route route,
+                                      ConstantTable constants,
+                                      Consumer<MethodVisitor> root) {
+        var target = route.target;
+        // Evaluate shared nodes and prepare arg loaders
+        var node = NodeUtil.of(packed, route.accesses, new int[1]);
+        var nodeVisitor = (AsmNodeVisitor) null;
+        if (node.size() != 0) {
+            node.accessor = root;
+            nodeVisitor = new AsmNodeVisitor(visitor, constants, route.accesses);
+            node.accept(nodeVisitor);
+        }
+        // Owner is bound as a constant
+        if (!Modifier.isStatic(target.getModifiers())) {
+            constants.push(visitor, target.getDeclaringClass(), route.owner);
+        }
+        UnpackGenerator.loadArguments(visitor, packed, target, root, nodeVisitor, 0);
+        AsmUtil.invoke(visitor, target);
+        var type = target.getReturnType();
+        if (type == void.class) {
+            visitor.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            AsmUtil.packPrimitive(visitor, type);
+        }
+        visitor.visitInsn(Opcodes.ARETURN);
+    }
+
+    private static void generateSwitch(MethodVisitor visitor, int[] keys, Label[] labels, Label fallback) {
+        var length = keys.length;
+        var low = keys[0];
+        var high = keys[length - 1];
+        // Same cost estimation as javac uses, keys are sorted
+        var tableSpace = 4 + ((long) high - low + 1);
+        var tableTime = 3;
+        var lookupSpace = 3 + 2L * length;
+        var lookupTime = length;
+        if (tableSpace + 3 * tableTime > lookupSpace + 3L * lookupTime) {
+            visitor.visitLookupSwitchInsn(fallback, keys, labels);
+            return;
+        }
+        var table = new Label[high - low + 1];
+        Arrays.fill(table, fallback);
+        for (var i = 0; i < length; ++i) {
+            table[keys[i] - low] = labels[i];
+        }
+        visitor.visitTableSwitchInsn(low, high, fallback, table);
+    }
+
+    private static void throwUnknownRoute(MethodVisitor visitor, boolean isInt) {
+        // throw new IllegalArgumentException("Unknown route: ".concat(String.valueOf(key)))
+        visitor.visitTypeInsn(Opcodes.NEW, ILLEGAL_ARGUMENT);
+        visitor.visitInsn(Opcodes.DUP);
+        visitor.visitLdcInsn("Unknown route: ");
+        if (isInt) {
+            visitor.visitVarInsn(Opcodes.ILOAD, 1);
+            visitor.visitMethodInsn(Opcodes.INVOKESTATIC, STRING, "valueOf", "(I)Ljava/lang/String;", false);
+        } else {
+            visitor.visitVarInsn(Opcodes.ALOAD, 1);
+        }
+        visitor.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                STRING,
+                "concat",
+                "(Ljava/lang/String;)Ljava/lang/String;",
+                false
+        );
+        visitor.visitMethodInsn(
+                Opcodes.INVOKESPECIAL,
+                ILLEGAL_ARGUMENT,
+                AsmUtil.INIT,
+                "(Ljava/lang/String;)V",
+                false
+        );
+        visitor.visitInsn(Opcodes.ATHROW);
+    }
+
+    private static void generateIntRoutes(MethodVisitor visitor, List<Route> routes, Label[] labels, Label fallback) {
+        // switch (key)
+        var sorted = new TreeMap<Integer, Label>();
+        for (var i = 0; i < routes.size(); ++i) {
+            sorted.put((Integer) routes.get(i).key, labels[i]);
+        }
+        var keys = new int[sorted.size()];
+        var targets = new Label[keys.length];
+        var i = 0;
+        for (var entry : sorted.entrySet()) {
+            keys[i] = entry.getKey();
+            targets[i++] = entry.getValue();
+        }
+        visitor.visitVarInsn(Opcodes.ILOAD, 1);
+        generateSwitch(visitor, keys, targets, fallback);
+    }
+
+    private static void generateStringRoutes(MethodVisitor visitor, List<Route> routes, Label[] labels, Label fallback) {
+        // switch (key.hashCode()), then key.equals(...) for each route with the same hash
+        var buckets = new TreeMap<Integer, List<Integer>>();
+        for (var i = 0; i < routes.size(); ++i) {
+            var hash = routes.get(i).key.hashCode();
+            buckets.computeIfAbsent(hash, k -> new ArrayList<>()).add(i);
+        }
+        var keys = new int[buckets.size()];
+        var targets = new Label[keys.length];
+        var i = 0;
+        for (var hash : buckets.keySet()) {
+            keys[i] = hash;
+            targets[i++] = new Label();
+        }
+        visitor.visitVarInsn(Opcodes.ALOAD, 1);
+        visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "hashCode", "()I", false);
+        generateSwitch(visitor, keys, targets, fallback);
+        i = 0;
+        for (var bucket : buckets.values()) {
+            visitor.visitLabel(targets[i++]);
+            for (var index : bucket) {
+                visitor.visitVarInsn(Opcodes.ALOAD, 1);
+                visitor.visitLdcInsn(routes.get(index).key);
+                visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "equals", "(Ljava/lang/Object;)Z", false);
+                visitor.visitJumpInsn(Opcodes.IFNE, labels[index]);
+            }
+            visitor.visitJumpInsn(Opcodes.GOTO, fallback);
+        }
+    }
+
+    private static void generateRouteMethod(LocalVariablesSorter visitor,
+                                            Class<?> packed,
+                                            List<Route> routes,
+                                            ConstantTable constants,
+                                            boolean isInt) {
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        var fallback = new Label();
+        var labels = new Label[routes.size()];
+        for (var i = 0; i < labels.length; ++i) {
+            labels[i] = new Label();
+        }
+        if (!routes.isEmpty()) {
+            // var element = (Packed) packed
+            var packedType = Type.getType(packed);
+            var element = visitor.newLocal(packedType);
+            visitor.visitVarInsn(Opcodes.ALOAD, 2);
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, packedType.getInternalName());
+            visitor.visitVarInsn(Opcodes.ASTORE, element);
+            if (isInt) {
+                generateIntRoutes(visitor, routes, labels, fallback);
+            } else {
+                generateStringRoutes(visitor, routes, labels, fallback);
+            }
+            // Each branch unpacks and returns on its own
+            Consumer<MethodVisitor> root = v -> v.visitVarInsn(Opcodes.ALOAD, element);
+            for (var i = 0; i < labels.length; ++i) {
+                visitor.visitLabel(labels[i]);
+                generateRoute(visitor, packed, routes.get(i), constants, root);
+            }
+        }
+        // default: throw
+        visitor.visitLabel(fallback);
+        throwUnknownRoute(visitor, isInt);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    static byte[] generate(String name,
+                           Class<?> packed,
+                           List<Route> ints,
+                           List<Route> strings,
+                           ConstantTable constants) {
+        // Switch branches need stack map frames
+        var writer = new LocalVariablesWriter(ClassWriter.COMPUTE_FRAMES, packed.getClassLoader());
+        writer.visit(
+                Opcodes.V11,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+                name,
+                null,
+                AsmUtil.OBJECT_NAME,
+                new String[]{ROUTE_FUNCTION}
+        );
+        AsmUtil.createEmptyConstructor(writer);
+        var intVisitor = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                ROUTE_INT_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateRouteMethod(intVisitor, packed, ints, constants, true);
+        var stringVisitor = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                AsmUtil.INVOKE,
+                ROUTE_STRING_DESCRIPTOR,
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateRouteMethod(stringVisitor, packed, strings, constants, false);
+        constants.write(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
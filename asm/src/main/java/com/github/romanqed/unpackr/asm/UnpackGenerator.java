@@ -0,0 +1,183 @@
+package com.github.romanqed.unpackr.asm;
+
+import com.github.romanqed.unpackr.MemberAccess;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+
+final class UnpackGenerator {
+    private UnpackGenerator() {
+    }
+
+    private static void loadPacked(MethodVisitor visitor, Class<?> packed, FunctionType function) {
+        visitor.visitVarInsn(Opcodes.ALOAD, function.packedIndex);
+        if (!packed.isAssignableFrom(function.packed)) {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(packed));
+        }
+    }
+
+    private static Consumer<MethodVisitor> buildRootLoader(LocalVariablesSorter visitor,
+                                                           Class<?> packed,
+                                                           FunctionType function,
+                                                           int size) {
+        if (size < 2) {
+            return v -> loadPacked(v, packed, function);
+        }
+        var index = visitor.newLocal(Type.getType(packed));
+        loadPacked(visitor, packed, function);
+        visitor.visitVarInsn(Opcodes.ASTORE, index);
+        return v -> v.visitVarInsn(Opcodes.ALOAD, index);
+    }
+
+    static void loadOwner(MethodVisitor visitor, Method target, FunctionType function) {
+        if (Modifier.isStatic(target.getModifiers())) {
+            return;
+        }
+        var owner = target.getDeclaringClass();
+        visitor.visitVarInsn(Opcodes.ALOAD, function.ownerIndex);
+        if (!owner.isAssignableFrom(function.owner)) {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(owner));
+        }
+    }
+
+    static void invokeTargetMethod(MethodVisitor visitor, Method target, FunctionType function) {
+        AsmUtil.invoke(visitor, target);
+        var from = target.getReturnType();
+        var to = function.method.getReturnType();
+        if (to == void.class) {
+            // Discard result
+            if (from == long.class || from == double.class) {
+                visitor.visitInsn(Opcodes.POP2);
+            } else if (from != void.class) {
+                visitor.visitInsn(Opcodes.POP);
+            }
+            visitor.visitInsn(Opcodes.RETURN);
+            return;
+        }
+        if (from == void.class) {
+            visitor.visitInsn(Opcodes.ACONST_NULL);
+        } else if (from.isPrimitive()) {
+            // Primitive is passed as is, if functional method returns the same type
+            if (!to.isPrimitive()) {
+                AsmUtil.packPrimitive(visitor, from);
+            }
+        } else if (!to.isAssignableFrom(from)) {
+            visitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(to));
+        }
+        visitor.visitInsn(Type.getType(to).getOpcode(Opcodes.IRETURN));
+    }
+
+    private static void generateDirectCall(MethodVisitor visitor,
+                                           Class<?> packed,
+                                           Method target,
+                                           FunctionType function,
+                                           ConstantTable constants,
+                                           Consumer<MethodVisitor> loader) {
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        // Prepare method owner ref
+        loadOwner(visitor, target, function);
+        var types = target.getParameterTypes();
+        for (var type : types) {
+            if (type != packed) {
+                throw new IllegalArgumentException("Mismatched types: " + type + ", " + packed);
+            }
+            loader.accept(visitor);
+        }
+        invokeTargetMethod(visitor, target, function);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    private static void generateMethod(LocalVariablesSorter visitor,
+                                       Class<?> packed,
+                                       Method target,
+                                       FunctionType function,
+                                       ConstantTable constants,
+                                       MemberAccess[][] accesses) {
+        // Build access tree
+        var count = new int[1];
+        var node = NodeUtil.of(packed, accesses, count);
+        var size = node.size();
+        // Check shortcut
+        if (size == 0) {
+            var loader = buildRootLoader(visitor, packed, function, count[0]);
+            generateDirectCall(visitor, packed, target, function, constants, loader);
+            return;
+        }
+        var loader = buildRootLoader(visitor, packed, function, count[0] + size);
+        node.accessor = loader;
+        // Generate cache vars and prepare arg loaders
+        var nodeVisitor = new AsmNodeVisitor(visitor, constants, accesses);
+        node.accept(nodeVisitor);
+        // {
+        visitor.visitCode();
+        constants.count(visitor);
+        // Prepare method owner ref
+        loadOwner(visitor, target, function);
+        // Invoke loaders
+        loadArguments(visitor, packed, target, loader, nodeVisitor, 0);
+        invokeTargetMethod(visitor, target, function);
+        // }
+        visitor.visitMaxs(0, 0);
+        visitor.visitEnd();
+    }
+
+    static void loadArguments(MethodVisitor visitor,
+                              Class<?> packed,
+                              Method target,
+                              Consumer<MethodVisitor> root,
+                              AsmNodeVisitor nodeVisitor,
+                              int offset) {
+        var types = target.getParameterTypes();
+        for (var i = 0; i < types.length; ++i) {
+            var argType = types[i];
+            if (argType == packed) {
+                root.accept(visitor);
+                continue;
+            }
+            if (nodeVisitor == null || !nodeVisitor.load(offset + i, argType)) {
+                throw new IllegalArgumentException("Mismatched types: " + argType + ", " + packed);
+            }
+        }
+    }
+
+    static byte[] generate(String name,
+                           Class<?> packed,
+                           Method target,
+                           FunctionType function,
+                           ConstantTable constants,
+                           MemberAccess[][] accesses) {
+        // Null checks need stack map frames, unlike straight-line code
+        var writer = NodeUtil.isNullSafe(accesses) || Conversions.isBranching(target, accesses)
+                ? new LocalVariablesWriter(ClassWriter.COMPUTE_FRAMES, packed.getClassLoader())
+                : new LocalVariablesWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V11,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL,
+                name,
+                null,
+                AsmUtil.OBJECT_NAME,
+                new String[]{function.internalName()}
+        );
+        AsmUtil.createEmptyConstructor(writer);
+        var visitor = writer.visitMethodWithLocals(
+                Opcodes.ACC_PUBLIC,
+                function.method.getName(),
+                function.descriptor(),
+                null,
+                new String[]{AsmUtil.THROWABLE}
+        );
+        generateMethod(visitor, packed, target, function, constants, accesses);
+        constants.write(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.util.function.Supplier;
+
+interface UnpackerFactory {
+
+    String qualify(String name);
+
+    Object create(String name, Supplier<byte[]> generator);
+}
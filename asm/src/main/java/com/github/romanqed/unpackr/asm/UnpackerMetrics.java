@@ -0,0 +1,50 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener for code generation and invocation metrics of an {@link AsmUnpacker}.
+ * <p>
+ * Metrics are opt-in: they are collected only by unpackers created with {@link AsmUnpacker#withMetrics(UnpackerMetrics)}.
+ * All methods have no-op defaults, so implementations override only what they need. Methods may be called
+ * from several threads at once.
+ *
+ * @see JfrUnpackerMetrics
+ */
+public interface UnpackerMetrics {
+
+    /**
+     * Called after bytecode of an unpacker class was generated.
+     *
+     * @param name   the internal name of the generated class
+     * @param nanos  the generation time in nanoseconds
+     * @param bytes  the size of the generated class file
+     * @param nodes  the number of nodes in the access trees of the class
+     * @param locals the maximum number of local variable slots used by a generated method
+     */
+    default void onGenerated(String name, long nanos, int bytes, int nodes, int locals) {
+    }
+
+    /**
+     * Called after a generated unpacker class was defined and instantiated.
+     * Not called if a class already defined under the same name is reused.
+     *
+     * @param name  the internal name of the defined class
+     * @param nanos the definition time in nanoseconds
+     */
+    default void onDefined(String name, long nanos) {
+    }
+
+    /**
+     * Returns the counter to increment on every invocation of unpackers generated under the specified name.
+     * <p>
+     * The increment is woven into generated code only if this method returns a counter, so invocations
+     * cost nothing extra when counting is disabled. Classes with counters are never reused by name.
+     *
+     * @param name the internal name of the class, the same for equal specs
+     * @return the counter, or {@code null} to not count invocations
+     */
+    default LongAdder counter(String name) {
+        return null;
+    }
+}
@@ -4,6 +4,7 @@ module com.github.romanqed.unpackr.asm {
     requires com.github.romanqed.jeflect.loader;
     requires org.objectweb.asm;
     requires com.github.romanqed.unpackr;
+    requires static jdk.jfr;
     // Exports
     exports com.github.romanqed.unpackr.asm;
 }
@@ -0,0 +1,39 @@
+package com.github.romanqed.unpackr.asm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Supplier;
+
+final class HiddenUnpackerFactory implements UnpackerFactory {
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class);
+    private final MethodHandles.Lookup lookup;
+    private final String prefix;
+
+    HiddenUnpackerFactory(MethodHandles.Lookup lookup) {
+        if (!lookup.hasFullPrivilegeAccess()) {
+            throw new IllegalArgumentException("Lookup must have full privilege access");
+        }
+        this.lookup = lookup;
+        var pkg = lookup.lookupClass().getPackageName();
+        this.prefix = pkg.isEmpty() ? "" : pkg.replace('.', '/') + "/";
+    }
+
+    @Override
+    public String qualify(String name) {
+        return prefix + name;
+    }
+
+    @Override
+    public Object create(String name, Supplier<byte[]> generator) {
+        try {
+            // Without ClassOption.STRONG the class is unloaded as soon as it becomes unreachable
+            var defined = lookup.defineHiddenClass(generator.get(), true);
+            var constructor = defined.findConstructor(defined.lookupClass(), CONSTRUCTOR);
+            return constructor.invoke();
+        } catch (Error | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define hidden unpacker class " + name, e);
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.github.romanqed.unpackr.asm;
 
 import com.github.romanqed.jeflect.loader.DefineClassLoader;
+import com.github.romanqed.unpackr.From;
 import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.Unpack;
+import com.github.romanqed.unpackr.UnpackSpec;
+import com.github.romanqed.unpackr.Unpackr;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
 
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class AsmUnpackerTest {
 
@@ -21,6 +44,55 @@ public final class AsmUnpackerTest {
         return "handled";
     }
 
+    public static String concat(String aProp1, String c) {
+        return aProp1 + c;
+    }
+
+    public static int length(String aProp1, String c) {
+        return aProp1.length() + c.length();
+    }
+
+    public static String join(String aProp1, String aProp3, String bProp1) {
+        return aProp1 + aProp3 + bProp1;
+    }
+
+    public static int sum(int a, int b) {
+        return a + b;
+    }
+
+    public static Object identity(Object value) {
+        return value;
+    }
+
+    public static String annotated(@Unpack("a.aProps['aProp1']") String aProp1, @From(method = "getA") A a) {
+        return aProp1 + a.getAProps().get("aProp2");
+    }
+
+    public static Object packed(Ctx ctx) {
+        return ctx;
+    }
+
+    public static String props(Map<String, String> props, String aProp1, String aProp2) {
+        return props.size() + aProp1 + aProp2;
+    }
+
+    private static MemberAccess[] aProp(String key) throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), key)
+                .build();
+    }
+
+    private static MemberAccess[] cStrVal() throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getC", Ctx.class))
+                .of(C.class.getMethod("getStrVal"))
+                .build();
+    }
+
     @Test
     public void testUnpack() throws Throwable {
         var aProp1 = MemberAccess.of()
@@ -60,6 +132,751 @@ public final class AsmUnpackerTest {
         assertEquals("handled", func.invoke(null, new CtxImpl()));
     }
 
+    @Test
+    public void testDistinctChains() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var cStrVal = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getC", Ctx.class))
+                .of(C.class.getMethod("getStrVal"))
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var first = unpacker.unpack(Ctx.class, target, aProp1, cStrVal);
+        var second = unpacker.unpack(Ctx.class, target, aProp2, cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal", first.invoke(null, new CtxImpl()));
+        assertEquals("ValueOfAProp2ValueOfCStrVal", second.invoke(null, new CtxImpl()));
+        var path = unpacker.unpack(Ctx.class, target, Unpackr.path(Ctx.class, "a.aProps['aProp1']"), cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal", path.invoke(null, new CtxImpl()));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_15)
+    public void testHiddenUnpack() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var cStrVal = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getC", Ctx.class))
+                .of(C.class.getMethod("getStrVal"))
+                .build();
+        var unpacker = new AsmUnpacker(MethodHandles.lookup());
+        var target = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var func = unpacker.unpack(Ctx.class, target, aProp1, cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal", func.invoke(null, new CtxImpl()));
+        // Names of hidden classes always have a '/' suffix
+        assertTrue(func.getClass().getName().contains("/"));
+        var identity = AsmUnpackerTest.class.getMethod("identity", Object.class);
+        assertSame(Locale.ROOT, unpacker.unpack(Ctx.class, identity, orDefault(Locale.ROOT)).invoke(null, new CtxImpl()));
+    }
+
+    @Test
+    public void testTypedFunction() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var cStrVal = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getC", Ctx.class))
+                .of(C.class.getMethod("getStrVal"))
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var length = AsmUnpackerTest.class.getMethod("length", String.class, String.class);
+        var intFunction = unpacker.unpack(IntFunction.class, Ctx.class, length, aProp1, cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal".length(), intFunction.apply(new CtxImpl()));
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var stringFunction = unpacker.unpack(StringFunction.class, Ctx.class, concat, aProp1, cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal", stringFunction.apply(null, new CtxImpl()));
+        var voidFunction = unpacker.unpack(VoidFunction.class, Ctx.class, length, aProp1, cStrVal);
+        voidFunction.apply(null, new CtxImpl());
+        assertThrows(IllegalArgumentException.class,
+                () -> unpacker.unpack(IntFunction.class, Ctx.class, concat, aProp1, cStrVal));
+        // Narrowed generic method is implemented, inherited one is reached through its bridge
+        var narrowed = unpacker.unpack(NarrowedFunction.class, Ctx.class, concat, aProp1, cStrVal);
+        assertEquals("ValueOfAProp1ValueOfCStrVal", narrowed.apply(new CtxImpl()));
+        Function<Ctx, Object> generic = narrowed;
+        assertEquals("ValueOfAProp1ValueOfCStrVal", generic.apply(new CtxImpl()));
+    }
+
+    @Test
+    public void testBatch() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var length = AsmUnpackerTest.class.getMethod("length", String.class, String.class);
+        var batch = unpacker.unpackBatch(Ctx.class, length, aProp1, aProp2);
+        var contexts = new Ctx[]{new CtxImpl(), new CtxImpl(), new CtxImpl()};
+        var expected = "ValueOfAProp1ValueOfAProp2".length();
+        var results = new Object[contexts.length];
+        batch.invoke(null, contexts, results);
+        assertArrayEquals(new Object[]{expected, expected, expected}, results);
+        results = new Object[contexts.length];
+        batch.invoke(null, List.of(contexts), results);
+        assertArrayEquals(new Object[]{expected, expected, expected}, results);
+        batch.invoke(null, contexts);
+        batch.invoke(null, List.of());
+    }
+
+    @Test
+    public void testNullSafe() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .nullSafe("none")
+                .build();
+        var aProp3 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp3")
+                .nullSafe("none")
+                .build();
+        var bProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("get", Object.class), "bProp1")
+                .nullSafe()
+                .build();
+        var aSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe()
+                .build();
+        var bSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe(5)
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var join = AsmUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        var sum = AsmUnpackerTest.class.getMethod("sum", int.class, int.class);
+        var joinFunc = unpacker.unpack(Ctx.class, join, aProp1, aProp3, bProp1);
+        var sumFunc = unpacker.unpack(Ctx.class, sum, aSize, bSize);
+        var missing = new MissingCtx();
+        assertEquals("ValueOfAProp1noneValueOfBProp1", joinFunc.invoke(null, new CtxImpl()));
+        assertEquals("ValueOfAProp1nonenull", joinFunc.invoke(null, missing));
+        assertEquals("nonenonenull", joinFunc.invoke(null, null));
+        assertEquals(4, sumFunc.invoke(null, new CtxImpl()));
+        assertEquals(7, sumFunc.invoke(null, missing));
+        assertEquals(5, sumFunc.invoke(null, null));
+        var batch = unpacker.unpackBatch(Ctx.class, join, aProp1, aProp3, bProp1);
+        var results = new Object[2];
+        batch.invoke(null, new Ctx[]{new CtxImpl(), missing}, results);
+        assertArrayEquals(new Object[]{"ValueOfAProp1noneValueOfBProp1", "ValueOfAProp1nonenull"}, results);
+        var invalid = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe("five")
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Ctx.class, sum, aSize, invalid));
+    }
+
+    private static MemberAccess[] orDefault(Object value) throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("getOrDefault", Object.class, Object.class), "missing", value)
+                .build();
+    }
+
+    @Test
+    public void testObjectConstants() throws Throwable {
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var identity = AsmUnpackerTest.class.getMethod("identity", Object.class);
+        // Boxed constants are created once, not on every call
+        var number = Long.valueOf(100_000L);
+        var numberFunc = unpacker.unpack(Ctx.class, identity, orDefault(number));
+        assertSame(number, numberFunc.invoke(null, new CtxImpl()));
+        assertSame(number, numberFunc.invoke(null, new CtxImpl()));
+        // Equal objects are distinct constants
+        var first = new ArrayList<>(List.of("value"));
+        var second = new ArrayList<>(List.of("value"));
+        var firstFunc = unpacker.unpack(Ctx.class, identity, orDefault(first));
+        var secondFunc = unpacker.unpack(Ctx.class, identity, orDefault(second));
+        assertSame(first, firstFunc.invoke(null, new CtxImpl()));
+        assertSame(second, secondFunc.invoke(null, new CtxImpl()));
+        var locale = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .nullSafe(Locale.ROOT)
+                .build();
+        var localeFunc = unpacker.unpack(Ctx.class, identity, locale);
+        assertSame(Locale.ROOT, localeFunc.invoke(null, new MissingCtx()));
+        var batch = unpacker.unpackBatch(Ctx.class, identity, orDefault(first));
+        var results = new Object[1];
+        batch.invoke(null, new Ctx[]{new CtxImpl()}, results);
+        assertSame(first, results[0]);
+    }
+
+    public static String cast(int length, String upper) {
+        return length + upper;
+    }
+
+    @Test
+    public void testCast() throws Throwable {
+        // Interface method is inherited by the root type, map value is cast to its actual type
+        var length = MemberAccess.of()
+                .of(CountingCtx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("length"))
+                .build();
+        var upper = MemberAccess.of()
+                .of(CountingCtx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("toUpperCase"))
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod("cast", int.class, String.class);
+        var func = unpacker.unpack(CountingCtx.class, target, length, upper);
+        var ctx = new CountingCtx();
+        assertEquals("13VALUEOFAPROP1", func.invoke(null, ctx));
+        // Value shared by casted chains is evaluated once
+        assertEquals(1, ctx.count);
+        var wrong = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(Integer.class)
+                .build();
+        var identity = unpacker.unpack(Ctx.class, AsmUnpackerTest.class.getMethod("identity", Object.class), wrong);
+        assertThrows(ClassCastException.class, () -> identity.invoke(null, new CtxImpl()));
+    }
+
+    public static String elements(long first, long extra, Object value, String attachment) {
+        return first + ":" + extra + ":" + value + ":" + attachment;
+    }
+
+    @Test
+    public void testIndex() throws Throwable {
+        var first = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("numbers"))
+                .index(0)
+                .build();
+        var extra = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("extra"))
+                .index(1)
+                .nullSafe(-1L)
+                .build();
+        var value = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("values"))
+                .index(1)
+                .build();
+        var attachment = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("attachments"))
+                .index(0)
+                .build();
+        var target = AsmUnpackerTest.class.getMethod("elements", long.class, long.class, Object.class, String.class);
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var func = unpacker.unpack(Payload.class, target, first, extra, value, attachment);
+        var payload = new Payload(new long[]{5}, null, new Object[]{"a", "b"}, List.of("x"));
+        assertEquals("5:-1:b:x", func.invoke(null, payload));
+        payload = new Payload(new long[]{5}, new long[]{7, 8}, new Object[]{"a", "b"}, List.of("x"));
+        assertEquals("5:8:b:x", func.invoke(null, payload));
+        var empty = new Payload(new long[0], null, new Object[0], List.of());
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> func.invoke(null, empty));
+    }
+
+    @Test
+    public void testPack() throws Throwable {
+        var code = MemberAccess.of()
+                .of(Response.class)
+                .set(Response.class.getField("code"))
+                .build();
+        var put = Map.class.getMethod("put", Object.class, Object.class);
+        var status = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getMethod("getProps"))
+                .set(put, "status")
+                .build();
+        var id = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getMethod("getProps"))
+                .set(put, "id")
+                .build();
+        var name = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getField("body"))
+                .set(Body.class.getMethod("setName", String.class))
+                .build();
+        var size = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getField("body"))
+                .set(Body.class.getMethod("setSize", long.class))
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var packer = unpacker.pack(Response.class, code, status, id, name, size);
+        var response = new Response();
+        packer.invoke(response, 200, "ok", 15, "body", 7L);
+        assertEquals(200, response.code);
+        assertEquals(Map.of("status", "ok", "id", 15), response.props);
+        assertEquals("body", response.body.name);
+        assertEquals(7L, response.body.size);
+        // Map shared by both puts is navigated once
+        assertEquals(1, response.count);
+        // Missing primitive value is written as zero
+        packer.invoke(response, null, "ok", 15, "body", 7L);
+        assertEquals(0, response.code);
+        assertThrows(ClassCastException.class, () -> packer.invoke(new Response(), 200, "ok", 15, 1, 7L));
+        var read = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getMethod("getProps"))
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> unpacker.pack(Response.class, code, read));
+        // Read chain ending with the same field is not a write
+        var readCode = MemberAccess.of()
+                .of(Response.class)
+                .of(Response.class.getField("code"))
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> unpacker.pack(Response.class, readCode));
+        // Write chain cannot be unpacked
+        var identity = AsmUnpackerTest.class.getMethod("identity", Object.class);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Response.class, identity, code));
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Response.class, identity, status));
+    }
+
+    public static String convert(long size, Object boxed, int unboxed, double missing, int defaulted) {
+        return size + ":" + boxed + ":" + unboxed + ":" + missing + ":" + defaulted;
+    }
+
+    public static short narrow(short value) {
+        return value;
+    }
+
+    @Test
+    public void testEmptyChain() throws Throwable {
+        // Empty chain refers to the packed object itself
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod("packed", Ctx.class);
+        var ctx = new CtxImpl();
+        var path = unpacker.unpack(Ctx.class, target, Unpackr.path(Ctx.class, ""));
+        var built = unpacker.unpack(Ctx.class, target, MemberAccess.of().of(Ctx.class).build());
+        assertSame(ctx, path.invoke(null, ctx));
+        assertSame(ctx, built.invoke(null, ctx));
+    }
+
+    @Test
+    public void testConversions() throws Throwable {
+        var size = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("size"))
+                .build();
+        var missing = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp9")
+                .build();
+        var defaulted = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp9")
+                .nullSafe(7)
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod(
+                "convert", long.class, Object.class, int.class, double.class, int.class
+        );
+        // Widened, boxed, unboxed from Object, null as zero and null as default
+        var function = unpacker.unpack(Ctx.class, target, size, size, orDefault(42), missing, defaulted);
+        assertEquals("2:2:42:0.0:7", function.invoke(null, new CtxImpl()));
+        var batch = unpacker.unpackBatch(Ctx.class, target, size, size, orDefault(42), missing, defaulted);
+        var results = new Object[1];
+        batch.invoke(null, new Ctx[]{new CtxImpl()}, results);
+        assertEquals("2:2:42:0.0:7", results[0]);
+        var join = AsmUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Ctx.class, join, size, size, size));
+        var narrow = AsmUnpackerTest.class.getMethod("narrow", short.class);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Ctx.class, narrow, size));
+    }
+
+    @Test
+    public void testFanOut() throws Throwable {
+        var aProp1 = aProp("aProp1");
+        var aProp2 = aProp("aProp2");
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var length = AsmUnpackerTest.class.getMethod("length", String.class, String.class);
+        var append = StringBuilder.class.getMethod("append", String.class);
+        var identity = AsmUnpackerTest.class.getMethod("identity", Object.class);
+        var a = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .build();
+        var fanOut = unpacker.unpackFanOut(Ctx.class, List.of(
+                new UnpackSpec(Ctx.class, concat, aProp1, aProp2),
+                new UnpackSpec(Ctx.class, length, aProp1, aProp2),
+                new UnpackSpec(Ctx.class, append, aProp1),
+                new UnpackSpec(Ctx.class, identity, a)
+        ));
+        var ctx = new CountingCtx();
+        var builder = new StringBuilder();
+        var results = new Object[4];
+        fanOut.invoke(new Object[]{null, null, builder, null}, ctx, results);
+        assertEquals("ValueOfAProp1ValueOfAProp2", results[0]);
+        assertEquals("ValueOfAProp1ValueOfAProp2".length(), results[1]);
+        assertSame(builder, results[2]);
+        assertEquals("ValueOfAProp1", builder.toString());
+        assertTrue(results[3] instanceof A);
+        // Shared prefix is evaluated once for all targets
+        assertEquals(1, ctx.count);
+        fanOut.invoke(new Object[]{null, null, builder, null}, ctx);
+        assertEquals(2, ctx.count);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpackFanOut(Ctx.class, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpackFanOut(Ctx.class, List.of(
+                new UnpackSpec(CtxImpl.class, concat, aProp1, aProp2)
+        )));
+    }
+
+    public static long total(long first, long second) {
+        return first + second;
+    }
+
+    public static long single(long value) {
+        return value;
+    }
+
+    private static MemberAccess[] number(int index) throws Exception {
+        return MemberAccess.of()
+                .of(Holder.class)
+                .of(Holder.class.getMethod("getPayload"))
+                .of(Payload.class.getField("numbers"))
+                .index(index)
+                .build();
+    }
+
+    @Test
+    public void testFanOutSharedField() throws Throwable {
+        // Getter is shared only through the field, which is used by several elements
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var total = AsmUnpackerTest.class.getMethod("total", long.class, long.class);
+        var single = AsmUnpackerTest.class.getMethod("single", long.class);
+        var fanOut = unpacker.unpackFanOut(Holder.class, List.of(
+                new UnpackSpec(Holder.class, total, number(0), number(1)),
+                new UnpackSpec(Holder.class, total, number(0), number(0)),
+                new UnpackSpec(Holder.class, single, number(1))
+        ));
+        var holder = new Holder(new Payload(new long[]{3, 4}, null, null, null));
+        var results = new Object[3];
+        fanOut.invoke(new Object[3], holder, results);
+        assertArrayEquals(new Object[]{7L, 6L, 4L}, results);
+        assertEquals(1, holder.count);
+    }
+
+    @Test
+    public void testSharedParameter() throws Throwable {
+        // Map is cached for both lookups and is also passed as a parameter itself
+        var props = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod("props", Map.class, String.class, String.class);
+        var func = unpacker.unpack(Ctx.class, target, props, aProp("aProp1"), aProp("aProp2"));
+        var ctx = new CountingCtx();
+        assertEquals("2ValueOfAProp1ValueOfAProp2", func.invoke(null, ctx));
+        assertEquals(1, ctx.count);
+    }
+
+    @Test
+    public void testRoutes() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var length = AsmUnpackerTest.class.getMethod("length", String.class, String.class);
+        var append = StringBuilder.class.getMethod("append", String.class);
+        var builder = new StringBuilder();
+        // Dense int keys, colliding string keys "Aa" and "BB"
+        var dense = unpacker.routes(Ctx.class)
+                .route(0, null, concat, aProp1, aProp2)
+                .route(1, null, length, aProp1, aProp2)
+                .route(2, builder, append, aProp2)
+                .route("Aa", null, concat, aProp2, aProp1)
+                .route("BB", null, length, aProp2, aProp2)
+                .build();
+        var ctx = new CtxImpl();
+        assertEquals("ValueOfAProp1ValueOfAProp2", dense.invoke(0, ctx));
+        assertEquals("ValueOfAProp1ValueOfAProp2".length(), dense.invoke(1, ctx));
+        assertSame(builder, dense.invoke(2, ctx));
+        assertEquals("ValueOfAProp2", builder.toString());
+        assertEquals("ValueOfAProp2ValueOfAProp1", dense.invoke("Aa", ctx));
+        assertEquals("ValueOfAProp2ValueOfAProp2".length(), dense.invoke("BB", ctx));
+        assertThrows(IllegalArgumentException.class, () -> dense.invoke(3, ctx));
+        assertThrows(IllegalArgumentException.class, () -> dense.invoke("Ab", ctx));
+        // Sparse int keys, no string keys
+        var sparse = unpacker.routes(Ctx.class)
+                .route(-100000, null, concat, aProp1, aProp2)
+                .route(7, null, length, aProp1, aProp2)
+                .route(Integer.MAX_VALUE, null, concat, aProp2, aProp2)
+                .build();
+        assertEquals("ValueOfAProp1ValueOfAProp2", sparse.invoke(-100000, ctx));
+        assertEquals("ValueOfAProp1ValueOfAProp2".length(), sparse.invoke(7, ctx));
+        assertEquals("ValueOfAProp2ValueOfAProp2", sparse.invoke(Integer.MAX_VALUE, ctx));
+        assertThrows(IllegalArgumentException.class, () -> sparse.invoke(8, ctx));
+        assertThrows(IllegalArgumentException.class, () -> sparse.invoke("Aa", ctx));
+        // Invalid routes
+        var routes = unpacker.routes(Ctx.class).route(0, null, concat, aProp1, aProp2);
+        assertThrows(IllegalArgumentException.class, () -> routes.route(0, null, length, aProp1, aProp2));
+        assertThrows(IllegalArgumentException.class, () -> routes.route(1, "owner", append, aProp1));
+        assertThrows(IllegalStateException.class, () -> unpacker.routes(Ctx.class).build());
+    }
+
+    @Test
+    public void testPrecompile() throws Throwable {
+        var aProp1 = aProp("aProp1");
+        var c = cStrVal();
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var concat = new UnpackSpec(Ctx.class, AsmUnpackerTest.class.getMethod("concat", String.class, String.class), aProp1, c);
+        var length = new UnpackSpec(Ctx.class, AsmUnpackerTest.class.getMethod("length", String.class, String.class), aProp1, c);
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            // Duplicates are created once, in order of appearance
+            var precompiled = unpacker.precompile(List.of(concat, length, concat), executor).join();
+            assertEquals(List.of(concat, length), new ArrayList<>(precompiled.functions().keySet()));
+            assertEquals(List.of(concat, length), new ArrayList<>(precompiled.timings().keySet()));
+            for (var timing : precompiled.timings().values()) {
+                assertTrue(timing.toNanos() > 0);
+            }
+            // Precompiled classes are the ones unpack would define
+            var function = precompiled.get(concat);
+            assertSame(function.getClass(), unpacker.unpack(Ctx.class, concat.target(), concat.accesses()).getClass());
+            // Any unsuitable spec fails the whole future
+            var invalid = new UnpackSpec(Ctx.class, concat.target(), aProp1);
+            var future = unpacker.precompile(List.of(concat, invalid), executor);
+            var thrown = assertThrows(CompletionException.class, future::join);
+            assertTrue(thrown.getCause() instanceof IllegalArgumentException);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Throwable {
+        var aProp1 = aProp("aProp1");
+        var aProp2 = aProp("aProp2");
+        var metrics = new JfrUnpackerMetrics(true);
+        var unpacker = new AsmUnpacker(new DefineClassLoader()).withMetrics(metrics);
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var file = Files.createTempFile("unpackr", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("com.github.romanqed.unpackr.Generation");
+            recording.enable("com.github.romanqed.unpackr.Definition");
+            recording.start();
+            var function = unpacker.unpack(Ctx.class, concat, aProp1, aProp2);
+            var batch = unpacker.unpackBatch(Ctx.class, concat, aProp1, aProp2);
+            function.invoke(null, new CtxImpl());
+            function.invoke(null, new CtxImpl());
+            batch.invoke(null, new Ctx[]{new CtxImpl()});
+            recording.stop();
+            recording.dump(file);
+            var generated = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().endsWith("Generation"))
+                    .collect(Collectors.toList());
+            assertEquals(2, generated.size());
+            for (var event : generated) {
+                // getA, getAProps and two lookups
+                assertEquals(4, event.getInt("nodes"));
+                assertTrue(event.getInt("bytes") > 0);
+                assertTrue(event.getInt("locals") > 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+        var invocations = metrics.invocations();
+        assertEquals(2, invocations.size());
+        assertTrue(invocations.containsValue(2L));
+        assertTrue(invocations.containsValue(1L));
+        assertEquals(Map.of(), new JfrUnpackerMetrics().invocations());
+        // Classes reused by name are not reported as defined again
+        var defined = new ArrayList<String>();
+        var listener = new UnpackerMetrics() {
+            @Override
+            public void onDefined(String name, long nanos) {
+                defined.add(name);
+            }
+        };
+        var reusing = new AsmUnpacker(new DefineClassLoader()).withMetrics(listener);
+        reusing.unpack(Ctx.class, concat, aProp1, aProp2);
+        reusing.unpack(Ctx.class, concat, aProp1, aProp2);
+        reusing.precompile(List.of(new UnpackSpec(Ctx.class, concat, aProp1, aProp2)), Runnable::run).join();
+        assertEquals(1, defined.size());
+    }
+
+    @Test
+    public void testBytecodeCache() throws Throwable {
+        var aProp1 = aProp("aProp1");
+        var c = cStrVal();
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var length = AsmUnpackerTest.class.getMethod("length", String.class, String.class);
+        var directory = Files.createTempDirectory("unpackr");
+        var generated = new ArrayList<String>();
+        var metrics = new UnpackerMetrics() {
+            @Override
+            public void onGenerated(String name, long nanos, int bytes, int nodes, int locals) {
+                generated.add(name);
+            }
+        };
+        try {
+            // Each unpacker uses a fresh loader, as a new start would
+            var first = new AsmUnpacker(new DefineClassLoader()).withMetrics(metrics).withCache(directory);
+            first.unpack(Ctx.class, concat, aProp1, c);
+            assertEquals(1, generated.size());
+            var file = directory.resolve(generated.get(0) + ".unpackr");
+            assertTrue(Files.isRegularFile(file));
+            // Stored entries are loaded instead of generated
+            var second = new AsmUnpacker(new DefineClassLoader()).withMetrics(metrics).withCache(directory);
+            assertEquals("ValueOfAProp1ValueOfCStrVal", second.unpack(Ctx.class, concat, aProp1, c).invoke(null, new CtxImpl()));
+            assertEquals(1, generated.size());
+            // Broken entries are regenerated
+            var bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 20] ^= 1;
+            Files.write(file, bytes);
+            var third = new AsmUnpacker(new DefineClassLoader()).withMetrics(metrics).withCache(directory);
+            third.unpack(Ctx.class, concat, aProp1, c);
+            assertEquals(2, generated.size());
+            // Valid entries, whose classes cannot be defined, are evicted
+            third.unpack(Ctx.class, length, aProp1, c);
+            assertEquals(3, generated.size());
+            var cache = new BytecodeCache(directory);
+            var name = generated.get(2);
+            cache.store(name, cache.load(generated.get(0)));
+            var fourth = new AsmUnpacker(new DefineClassLoader()).withCache(directory);
+            assertThrows(Throwable.class, () -> fourth.unpack(Ctx.class, length, aProp1, c));
+            assertNull(cache.load(name));
+            // Classes bound to object constants are not persisted
+            third.unpack(Ctx.class, AsmUnpackerTest.class.getMethod("identity", Object.class), orDefault(Locale.ROOT));
+            try (var list = Files.list(directory)) {
+                assertEquals(1, list.count());
+            }
+        } finally {
+            try (var list = Files.list(directory)) {
+                for (var file : list.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testAnnotations() throws Throwable {
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var target = AsmUnpackerTest.class.getMethod("annotated", String.class, A.class);
+        var function = unpacker.unpack(Ctx.class, target);
+        assertEquals("ValueOfAProp1ValueOfAProp2", function.invoke(null, new CtxImpl()));
+    }
+
+    @Test
+    public void testInheritedMembers() throws Throwable {
+        // Members of a non-public base are reached only through its public subclass
+        var unpacker = new AsmUnpacker(new DefineClassLoader());
+        var concat = AsmUnpackerTest.class.getMethod("concat", String.class, String.class);
+        var name = MemberAccess.of()
+                .of(Derived.class)
+                .of(Base.class.getMethod("getName"))
+                .build();
+        var tag = MemberAccess.of()
+                .of(Derived.class)
+                .of(Base.class.getField("tag"))
+                .build();
+        var derived = new Derived();
+        derived.child = new Derived();
+        assertEquals("nametag", unpacker.unpack(Derived.class, concat, name, tag).invoke(null, derived));
+        var nested = MemberAccess.of()
+                .of(Derived.class)
+                .of(Derived.class.getField("child"))
+                .of(Base.class.getMethod("getName"))
+                .build();
+        assertEquals("namename", unpacker.unpack(Derived.class, concat, name, nested).invoke(null, derived));
+        var packer = unpacker.pack(Derived.class,
+                MemberAccess.of().of(Derived.class).set(Base.class.getMethod("setName", String.class)).build(),
+                MemberAccess.of().of(Derived.class).set(Base.class.getField("tag")).build());
+        packer.invoke(derived, "value", "other");
+        assertEquals("value", derived.getName());
+        assertEquals("other", derived.tag);
+    }
+
+    public interface IntFunction {
+        int apply(Ctx ctx);
+    }
+
+    public interface StringFunction {
+        String apply(Object owner, Ctx ctx);
+    }
+
+    public interface NarrowedFunction extends Function<Ctx, Object> {
+        @Override
+        Object apply(Ctx ctx);
+    }
+
+    public interface VoidFunction {
+        void apply(Object owner, Object ctx);
+    }
+
     public interface Ctx {
         static C getC(Ctx ctx) {
             return ((CtxImpl) ctx).getC();
@@ -82,6 +899,77 @@ public final class AsmUnpackerTest {
         String getStrVal();
     }
 
+    static class Base {
+        public String tag = "tag";
+        private String name = "name";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static final class Derived extends Base {
+        public Derived child;
+    }
+
+    public static final class Payload {
+        public final long[] numbers;
+        public final long[] extra;
+        public final Object[] values;
+        public final List<String> attachments;
+
+        public Payload(long[] numbers, long[] extra, Object[] values, List<String> attachments) {
+            this.numbers = numbers;
+            this.extra = extra;
+            this.values = values;
+            this.attachments = attachments;
+        }
+    }
+
+    public static final class Response {
+        public final Map<String, Object> props = new HashMap<>();
+        public final Body body = new Body();
+        public int code;
+        int count;
+
+        public Map<String, Object> getProps() {
+            ++count;
+            return props;
+        }
+    }
+
+    public static final class Holder {
+        private final Payload payload;
+        int count;
+
+        public Holder(Payload payload) {
+            this.payload = payload;
+        }
+
+        public Payload getPayload() {
+            ++count;
+            return payload;
+        }
+    }
+
+    public static final class Body {
+        String name;
+        long size;
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Body setSize(long size) {
+            this.size = size;
+            return this;
+        }
+    }
+
     public static final class CtxImpl implements Ctx {
 
         @Override
@@ -98,4 +986,32 @@ public final class AsmUnpackerTest {
             return () -> "ValueOfCStrVal";
         }
     }
+
+    public static final class MissingCtx implements Ctx {
+
+        @Override
+        public A getA() {
+            return () -> Map.of("aProp1", "ValueOfAProp1", "aProp2", "ValueOfAProp2");
+        }
+
+        @Override
+        public B getB() {
+            return null;
+        }
+    }
+
+    public static final class CountingCtx implements Ctx {
+        int count;
+
+        @Override
+        public A getA() {
+            ++count;
+            return () -> Map.of("aProp1", "ValueOfAProp1", "aProp2", "ValueOfAProp2");
+        }
+
+        @Override
+        public B getB() {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package com.github.romanqed.unpackr.benchmarks;
+
+import com.github.romanqed.jeflect.cloner.NoopReflectCloner;
+import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.benchmarks.ShapeBenchmark.Node;
+import com.github.romanqed.unpackr.reflect.ReflectUnpacker;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reflect backend at the limits of its allocation-free invokers.
+ * <p>
+ * The {@code locals} shape keeps 4 shared values in locals and {@code empty} calls a method without parameters,
+ * both are expected to allocate nothing. The {@code slots} shape needs 5 shared values and {@code arity}
+ * passes 9 parameters, so they fall back to a frame array and an argument array respectively.
+ * Run with {@code -prof gc} to get {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FrameBenchmark {
+    @Param({"empty", "locals", "slots", "arity"})
+    public String shape;
+
+    @Param({"false", "true"})
+    public boolean handles;
+
+    private Handler handler;
+    private Node node;
+    private Function2<Object, Node, Object> function;
+
+    private static MemberAccess[] level(int depth) throws NoSuchMethodException {
+        var builder = MemberAccess.of().of(Node.class);
+        for (var i = 0; i < depth; ++i) {
+            builder.of(Node.class.getMethod("next"));
+        }
+        return builder.of(Node.class.getMethod("value")).build();
+    }
+
+    private static MemberAccess[] branch(int index) throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Node.class)
+                .of(Node.class.getMethod("branch" + index))
+                .of(Node.class.getMethod("value"))
+                .build();
+    }
+
+    private static Method handle(int count) throws NoSuchMethodException {
+        var parameters = new Class<?>[count];
+        Arrays.fill(parameters, Object.class);
+        return Handler.class.getMethod("handle" + count, parameters);
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        handler = new Handler();
+        node = new Node(1, "value");
+        MemberAccess[][] accesses;
+        switch (shape) {
+            case "empty":
+                accesses = new MemberAccess[0][];
+                break;
+            case "locals":
+                // Every level is used by its value and by the next level
+                accesses = new MemberAccess[][]{level(1), level(2), level(3), level(4), level(4)};
+                break;
+            case "slots":
+                accesses = new MemberAccess[][]{level(1), level(2), level(3), level(4), level(5), level(5)};
+                break;
+            case "arity":
+                accesses = new MemberAccess[9][];
+                for (var i = 0; i < 8; ++i) {
+                    accesses[i] = branch(i);
+                }
+                accesses[8] = level(1);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner(), handles);
+        function = unpacker.unpack(Node.class, handle(accesses.length), accesses);
+    }
+
+    @Benchmark
+    public Object unpack() throws Throwable {
+        return function.invoke(handler, node);
+    }
+
+    public static final class Handler {
+        public Object handle0() {
+            return this;
+        }
+
+        public Object handle5(Object a, Object b, Object c, Object d, Object e) {
+            return a == b ? c : a == d ? e : d;
+        }
+
+        public Object handle6(Object a, Object b, Object c, Object d, Object e, Object f) {
+            return a == b ? c == d ? e : f : a;
+        }
+
+        public Object handle9(Object a, Object b, Object c, Object d, Object e,
+                              Object f, Object g, Object h, Object i) {
+            return a == b ? c == d ? e : f : g == h ? i : a;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.romanqed.unpackr.benchmarks;
+
+import com.github.romanqed.jeflect.loader.DefineClassLoader;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.PackFunction;
+import com.github.romanqed.unpackr.asm.AsmUnpacker;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writes of method results back into a nested response: two map entries, a setter and a field.
+ * The {@code reflect} benchmark walks the same members with {@link Method#invoke} and {@link Field#set},
+ * as hand-written copying code usually does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PackBenchmark {
+    private Ctx ctx;
+    private Object[] values;
+    private PackFunction<Ctx> asm;
+    private Method getRp;
+    private Method getRpProps;
+    private Method put;
+    private Method setStatus;
+    private Field code;
+
+    @Setup
+    public void setup() throws Exception {
+        ctx = new Ctx();
+        values = new Object[]{"first", "second", "ok", 200};
+        getRp = Ctx.class.getMethod("getRp");
+        getRpProps = Rp.class.getMethod("getRpProps");
+        put = Map.class.getMethod("put", Object.class, Object.class);
+        setStatus = Rp.class.getMethod("setStatus", String.class);
+        code = Rp.class.getField("code");
+        var first = MemberAccess.of()
+                .of(Ctx.class)
+                .of(getRp)
+                .of(getRpProps)
+                .set(put, "first")
+                .build();
+        var second = MemberAccess.of()
+                .of(Ctx.class)
+                .of(getRp)
+                .of(getRpProps)
+                .set(put, "second")
+                .build();
+        var status = MemberAccess.of()
+                .of(Ctx.class)
+                .of(getRp)
+                .set(setStatus)
+                .build();
+        var assign = MemberAccess.of()
+                .of(Ctx.class)
+                .of(getRp)
+                .set(code)
+                .build();
+        asm = new AsmUnpacker(new DefineClassLoader()).pack(Ctx.class, first, second, status, assign);
+    }
+
+    @Benchmark
+    public Ctx direct() {
+        var rp = ctx.getRp();
+        var props = rp.getRpProps();
+        props.put("first", values[0]);
+        props.put("second", values[1]);
+        rp.setStatus((String) values[2]);
+        rp.code = (Integer) values[3];
+        return ctx;
+    }
+
+    @Benchmark
+    public Ctx asm() throws Throwable {
+        asm.invoke(ctx, values);
+        return ctx;
+    }
+
+    @Benchmark
+    public Ctx reflect() throws Throwable {
+        var rp = getRp.invoke(ctx);
+        var props = getRpProps.invoke(rp);
+        put.invoke(props, "first", values[0]);
+        put.invoke(props, "second", values[1]);
+        setStatus.invoke(rp, values[2]);
+        code.set(rp, values[3]);
+        return ctx;
+    }
+
+    public static final class Ctx {
+        private final Rp rp = new Rp();
+
+        public Rp getRp() {
+            return rp;
+        }
+    }
+
+    public static final class Rp {
+        private final Map<String, Object> rpProps = new HashMap<>();
+        public int code;
+        private String status;
+
+        public Map<String, Object> getRpProps() {
+            return rpProps;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.romanqed.unpackr.benchmarks;
+
+import com.github.romanqed.jeflect.cloner.NoopReflectCloner;
+import com.github.romanqed.jeflect.loader.DefineClassLoader;
+import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.asm.AsmUnpacker;
+import com.github.romanqed.unpackr.invoke.InvokeUnpacker;
+import com.github.romanqed.unpackr.reflect.ReflectUnpacker;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures invocation cost of unpackers built over different access tree shapes.
+ * <p>
+ * Every parameter of the target method is bound to a chain that starts at the packed {@link Node},
+ * makes {@code depth} node-to-node steps and ends with a leaf getter. With {@code shared} chains all
+ * parameters walk the same {@code next()} prefix, otherwise each parameter starts with its own
+ * {@code branchN()} step. The {@code loop} backend is a hand-written function walking the same
+ * shape without unpackr. Since it cannot be straight-line code for every parameter combination, it is
+ * a reference for interpretive overhead; see {@link UnpackerBenchmark#direct()} for a plain direct call.
+ * Run with {@code -prof gc} to get {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShapeBenchmark {
+    @Param({"loop", "asm", "reflect", "reflectHandles", "invoke"})
+    public String backend;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    @Param({"1", "4", "8"})
+    public int fanOut;
+
+    @Param({"true", "false"})
+    public boolean shared;
+
+    @Param({"false", "true"})
+    public boolean staticSteps;
+
+    @Param({"false", "true"})
+    public boolean constants;
+
+    @Param({"false", "true"})
+    public boolean primitive;
+
+    private Handler handler;
+    private Node node;
+    private Function2<Object, Node, Object> function;
+
+    private static Method getMethod(String name, Class<?>... parameters) {
+        try {
+            return Node.class.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MemberAccess[] chain(int index) {
+        var builder = MemberAccess.of().of(Node.class);
+        var steps = depth;
+        if (!shared) {
+            builder.of(getMethod("branch" + index));
+            --steps;
+        }
+        var step = staticSteps ? getMethod("step", Node.class) : getMethod("next");
+        for (var i = 0; i < steps; ++i) {
+            builder.of(step);
+        }
+        var leaf = primitive ? "number" : "value";
+        if (constants) {
+            builder.of(getMethod(leaf, String.class), "key" + index);
+        } else {
+            builder.of(getMethod(leaf));
+        }
+        return builder.build();
+    }
+
+    private Function2<Object, Node, Object> unpack(Method target, MemberAccess[][] accesses) {
+        switch (backend) {
+            case "loop":
+                return new Loop(this);
+            case "asm":
+                return new AsmUnpacker(new DefineClassLoader()).unpack(Node.class, target, accesses);
+            case "reflect":
+                return new ReflectUnpacker(new NoopReflectCloner()).unpack(Node.class, target, accesses);
+            case "reflectHandles":
+                return new ReflectUnpacker(new NoopReflectCloner(), true).unpack(Node.class, target, accesses);
+            case "invoke":
+                return new InvokeUnpacker().unpack(Node.class, target, accesses);
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        if (fanOut != 1 && fanOut != 4 && fanOut != 8) {
+            throw new IllegalArgumentException("Unsupported fan-out: " + fanOut);
+        }
+        handler = new Handler();
+        node = new Node(1, "value");
+        var accesses = new MemberAccess[fanOut][];
+        for (var i = 0; i < fanOut; ++i) {
+            accesses[i] = chain(i);
+        }
+        var parameters = new Class<?>[fanOut];
+        Arrays.fill(parameters, primitive ? int.class : Object.class);
+        var target = Handler.class.getMethod((primitive ? "sum" : "handle") + fanOut, parameters);
+        function = unpack(target, accesses);
+    }
+
+    @Benchmark
+    public Object unpack() throws Throwable {
+        return function.invoke(handler, node);
+    }
+
+    private static final class Loop implements Function2<Object, Node, Object> {
+        private final int depth;
+        private final int fanOut;
+        private final boolean shared;
+        private final boolean staticSteps;
+        private final boolean constants;
+        private final boolean primitive;
+        private final String[] keys;
+        private final Object[] values;
+        private final int[] numbers;
+
+        private Loop(ShapeBenchmark shape) {
+            this.depth = shape.depth;
+            this.fanOut = shape.fanOut;
+            this.shared = shape.shared;
+            this.staticSteps = shape.staticSteps;
+            this.constants = shape.constants;
+            this.primitive = shape.primitive;
+            this.keys = new String[fanOut];
+            for (var i = 0; i < fanOut; ++i) {
+                keys[i] = "key" + i;
+            }
+            // Benchmark state is not shared between threads, so buffers can be reused
+            this.values = new Object[fanOut];
+            this.numbers = new int[fanOut];
+        }
+
+        private static Node branch(Node node, int index) {
+            switch (index) {
+                case 0:
+                    return node.branch0();
+                case 1:
+                    return node.branch1();
+                case 2:
+                    return node.branch2();
+                case 3:
+                    return node.branch3();
+                case 4:
+                    return node.branch4();
+                case 5:
+                    return node.branch5();
+                case 6:
+                    return node.branch6();
+                default:
+                    return node.branch7();
+            }
+        }
+
+        private Node walk(Node node, int steps) {
+            for (var i = 0; i < steps; ++i) {
+                node = staticSteps ? Node.step(node) : node.next();
+            }
+            return node;
+        }
+
+        private void leaf(Node node, int index) {
+            if (primitive) {
+                numbers[index] = constants ? node.number(keys[index]) : node.number();
+            } else {
+                values[index] = constants ? node.value(keys[index]) : node.value();
+            }
+        }
+
+        private Object call(Handler handler) {
+            var v = values;
+            var n = numbers;
+            switch (fanOut) {
+                case 1:
+                    return primitive ? handler.sum1(n[0]) : handler.handle1(v[0]);
+                case 4:
+                    return primitive
+                            ? handler.sum4(n[0], n[1], n[2], n[3])
+                            : handler.handle4(v[0], v[1], v[2], v[3]);
+                default:
+                    return primitive
+                            ? handler.sum8(n[0], n[1], n[2], n[3], n[4], n[5], n[6], n[7])
+                            : handler.handle8(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]);
+            }
+        }
+
+        @Override
+        public Object invoke(Object owner, Node packed) {
+            if (shared) {
+                var prefix = walk(packed, depth);
+                for (var i = 0; i < fanOut; ++i) {
+                    leaf(prefix, i);
+                }
+            } else {
+                for (var i = 0; i < fanOut; ++i) {
+                    leaf(walk(branch(packed, i), depth - 1), i);
+                }
+            }
+            return call((Handler) owner);
+        }
+    }
+
+    public static final class Handler {
+        public Object handle1(Object a) {
+            return a;
+        }
+
+        public Object handle4(Object a, Object b, Object c, Object d) {
+            return a == b ? c : d;
+        }
+
+        public Object handle8(Object a, Object b, Object c, Object d, Object e, Object f, Object g, Object h) {
+            return a == b ? c == d ? e : f : g == h ? a : h;
+        }
+
+        public int sum1(int a) {
+            return a;
+        }
+
+        public int sum4(int a, int b, int c, int d) {
+            return a + b + c + d;
+        }
+
+        public int sum8(int a, int b, int c, int d, int e, int f, int g, int h) {
+            return a + b + c + d + e + f + g + h;
+        }
+    }
+
+    /**
+     * A self-referencing node, so chains of any depth can be walked without allocating.
+     */
+    public static final class Node {
+        private final int number;
+        private final Object value;
+
+        public Node(int number, Object value) {
+            this.number = number;
+            this.value = value;
+        }
+
+        public static Node step(Node node) {
+            return node.next();
+        }
+
+        public Node next() {
+            return this;
+        }
+
+        public Node branch0() {
+            return this;
+        }
+
+        public Node branch1() {
+            return this;
+        }
+
+        public Node branch2() {
+            return this;
+        }
+
+        public Node branch3() {
+            return this;
+        }
+
+        public Node branch4() {
+            return this;
+        }
+
+        public Node branch5() {
+            return this;
+        }
+
+        public Node branch6() {
+            return this;
+        }
+
+        public Node branch7() {
+            return this;
+        }
+
+        public int number() {
+            return number;
+        }
+
+        public int number(String key) {
+            return number + key.length();
+        }
+
+        public Object value() {
+            return value;
+        }
+
+        public Object value(String key) {
+            return key.isEmpty() ? null : value;
+        }
+    }
+}
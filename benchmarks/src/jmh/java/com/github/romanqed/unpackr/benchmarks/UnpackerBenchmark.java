@@ -0,0 +1,190 @@
+package com.github.romanqed.unpackr.benchmarks;
+
+import com.github.romanqed.jeflect.cloner.NoopReflectCloner;
+import com.github.romanqed.jeflect.loader.DefineClassLoader;
+import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.Unpack;
+import com.github.romanqed.unpackr.UnpackSpec;
+import com.github.romanqed.unpackr.Unpackable;
+import com.github.romanqed.unpackr.UnpackerRegistry;
+import com.github.romanqed.unpackr.asm.AsmUnpacker;
+import com.github.romanqed.unpackr.asm.BatchFunction;
+import com.github.romanqed.unpackr.asm.FanOutFunction;
+import com.github.romanqed.unpackr.invoke.InvokeUnpacker;
+import com.github.romanqed.unpackr.reflect.ReflectUnpacker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UnpackerBenchmark {
+    private static final int BATCH_SIZE = 1024;
+    private static final int LISTENERS = 8;
+    private Handler handler;
+    private Ctx ctx;
+    private Function2<Object, Ctx, Object> asm;
+    private Function2<Object, Ctx, Object> reflect;
+    private Function2<Object, Ctx, Object> reflectHandles;
+    private Function2<Object, Ctx, Object> invoke;
+    private Function2<Object, Ctx, Object> generated;
+    private BatchFunction<Ctx> asmBatch;
+    private Ctx[] batch;
+    private Object[] results;
+    private Function2<Object, Ctx, Object>[] listeners;
+    private FanOutFunction<Ctx> asmFanOut;
+    private Object[] owners;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() throws Exception {
+        handler = new Handler();
+        ctx = new Ctx(new Rq(Map.of("rqProp", "rqValue")), new Rp(Map.of("rpProp", "rpValue")));
+        var first = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getRq"))
+                .of(Rq.class.getMethod("getRqProps"))
+                .of(Map.class.getMethod("get", Object.class), "rqProp")
+                .build();
+        var second = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getRp"))
+                .of(Rp.class.getMethod("getRpProps"))
+                .of(Map.class.getMethod("get", Object.class), "rpProp")
+                .build();
+        var target = Handler.class.getMethod("handle", Object.class, Object.class);
+        asm = new AsmUnpacker(new DefineClassLoader()).unpack(Ctx.class, target, first, second);
+        reflect = new ReflectUnpacker(new NoopReflectCloner()).unpack(Ctx.class, target, first, second);
+        reflectHandles = new ReflectUnpacker(new NoopReflectCloner(), true).unpack(Ctx.class, target, first, second);
+        invoke = new InvokeUnpacker().unpack(Ctx.class, target, first, second);
+        generated = UnpackerRegistry.get(Ctx.class, target);
+        asmBatch = new AsmUnpacker(new DefineClassLoader()).unpackBatch(Ctx.class, target, first, second);
+        batch = new Ctx[BATCH_SIZE];
+        Arrays.fill(batch, ctx);
+        results = new Object[BATCH_SIZE];
+        listeners = new Function2[LISTENERS];
+        var specs = new ArrayList<UnpackSpec>();
+        for (var i = 0; i < LISTENERS; ++i) {
+            listeners[i] = asm;
+            specs.add(new UnpackSpec(Ctx.class, target, first, second));
+        }
+        asmFanOut = new AsmUnpacker(new DefineClassLoader()).unpackFanOut(Ctx.class, specs);
+        owners = new Object[LISTENERS];
+        Arrays.fill(owners, handler);
+    }
+
+    @Benchmark
+    public Object direct() {
+        return handler.handle(ctx.getRq().getRqProps().get("rqProp"), ctx.getRp().getRpProps().get("rpProp"));
+    }
+
+    @Benchmark
+    public Object asm() throws Throwable {
+        return asm.invoke(handler, ctx);
+    }
+
+    @Benchmark
+    public Object reflect() throws Throwable {
+        return reflect.invoke(handler, ctx);
+    }
+
+    @Benchmark
+    public Object reflectHandles() throws Throwable {
+        return reflectHandles.invoke(handler, ctx);
+    }
+
+    @Benchmark
+    public Object invoke() throws Throwable {
+        return invoke.invoke(handler, ctx);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object asmLoop() throws Throwable {
+        for (var i = 0; i < BATCH_SIZE; ++i) {
+            results[i] = asm.invoke(handler, batch[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object asmBatch() throws Throwable {
+        asmBatch.invoke(handler, batch, results);
+        return results;
+    }
+
+    @Benchmark
+    public Object asmListeners() throws Throwable {
+        for (var i = 0; i < LISTENERS; ++i) {
+            results[i] = listeners[i].invoke(handler, ctx);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Object asmFanOut() throws Throwable {
+        asmFanOut.invoke(owners, ctx, results);
+        return results;
+    }
+
+    @Benchmark
+    public Object generated() throws Throwable {
+        return generated.invoke(handler, ctx);
+    }
+
+    public static final class Handler {
+        @Unpackable(Ctx.class)
+        public Object handle(@Unpack("rq.rqProps['rqProp']") Object rqProp,
+                             @Unpack("rp.rpProps['rpProp']") Object rpProp) {
+            return rqProp == rpProp ? null : rqProp;
+        }
+    }
+
+    public static final class Ctx {
+        private final Rq rq;
+        private final Rp rp;
+
+        public Ctx(Rq rq, Rp rp) {
+            this.rq = rq;
+            this.rp = rp;
+        }
+
+        public Rq getRq() {
+            return rq;
+        }
+
+        public Rp getRp() {
+            return rp;
+        }
+    }
+
+    public static final class Rq {
+        private final Map<String, Object> rqProps;
+
+        public Rq(Map<String, Object> rqProps) {
+            this.rqProps = rqProps;
+        }
+
+        public Map<String, Object> getRqProps() {
+            return rqProps;
+        }
+    }
+
+    public static final class Rp {
+        private final Map<String, Object> rpProps;
+
+        public Rp(Map<String, Object> rpProps) {
+            this.rpProps = rpProps;
+        }
+
+        public Map<String, Object> getRpProps() {
+            return rpProps;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.romanqed.unpackr.invoke;
+
+import com.github.romanqed.unpackr.NullSafeAccess;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+final class HandleComposer {
+    private static final MethodHandle IS_NULL = findIsNull();
+    private final List<Class<?>> types;
+    private final List<Integer> parents;
+    private final List<MethodHandle> combiners;
+    private final MethodHandle[] extractors;
+    private final int[] sources;
+    private final NullSafeAccess[] markers;
+
+    HandleComposer(Class<?> packed, NullSafeAccess[] markers) {
+        this.types = new ArrayList<>();
+        this.parents = new ArrayList<>();
+        this.combiners = new ArrayList<>();
+        this.extractors = new MethodHandle[markers.length];
+        this.sources = new int[markers.length];
+        this.markers = markers;
+        // Slot 0 always holds packed object
+        types.add(packed);
+        parents.add(-1);
+        combiners.add(null);
+    }
+
+    private static MethodHandle findIsNull() {
+        try {
+            var type = MethodType.methodType(boolean.class, Object.class);
+            return MethodHandles.lookup().findStatic(Objects.class, "isNull", type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle isNull(Class<?> type) {
+        return IS_NULL.asType(MethodType.methodType(boolean.class, type));
+    }
+
+    static MethodHandle nullSafe(MethodHandle step) {
+        var type = step.type();
+        // Primitive results are boxed, so a missing value can be passed down the chain as null
+        var boxed = step.asType(type.changeReturnType(type.wrap().returnType()));
+        var from = type.parameterType(0);
+        if (from.isPrimitive()) {
+            return boxed;
+        }
+        return MethodHandles.guardWithTest(isNull(from), MethodHandles.empty(boxed.type()), boxed);
+    }
+
+    private static MethodHandle orElse(MethodHandle handle, Object value) {
+        var type = handle.type().returnType();
+        var fallback = MethodHandles.dropArguments(MethodHandles.constant(type, value), 0, type);
+        var select = MethodHandles.guardWithTest(isNull(type), fallback, MethodHandles.identity(type));
+        return MethodHandles.filterReturnValue(handle, select);
+    }
+
+    private static MethodHandle compose(MethodHandle chain, Class<?> type, MethodHandle step) {
+        var adapted = step.asType(step.type().changeParameterType(0, type));
+        if (chain == null) {
+            return adapted;
+        }
+        return MethodHandles.filterReturnValue(chain, adapted);
+    }
+
+    private void collect(Node node, int slot, Class<?> type, MethodHandle chain) {
+        if (node.indexes != null) {
+            for (var index : node.indexes) {
+                extractors[index] = chain;
+                sources[index] = slot;
+            }
+        }
+        if (node.children == null) {
+            return;
+        }
+        for (var child : node.children.values()) {
+            var next = compose(chain, type, child.step);
+            var nextType = next.type().returnType();
+            if (child.uses() < 2) {
+                collect(child, slot, nextType, next);
+                continue;
+            }
+            // Value is consumed more than once, so it gets its own slot
+            var nextSlot = types.size();
+            types.add(nextType);
+            parents.add(slot);
+            combiners.add(next);
+            collect(child, nextSlot, nextType, null);
+        }
+    }
+
+    void collect(Node root) {
+        collect(root, 0, types.get(0), null);
+        if (root.safe != null) {
+            collect(root.safe, 0, types.get(0), null);
+        }
+    }
+
+    private MethodHandle fold(MethodHandle handle, int slot) {
+        // (owner, s0, ..., sN) -> (owner, sN, s0, ..., sN-1)
+        var type = handle.type()
+                .dropParameterTypes(slot + 1, slot + 2)
+                .insertParameterTypes(1, types.get(slot));
+        var reorder = new int[slot + 2];
+        for (var i = 0; i < slot; ++i) {
+            reorder[i + 1] = i + 2;
+        }
+        reorder[slot + 1] = 1;
+        var permuted = MethodHandles.permuteArguments(handle, type, reorder);
+        // Compute sN from its parent slot right before the call
+        var parent = parents.get(slot);
+        var combiner = MethodHandles.dropArguments(combiners.get(slot), 0, types.subList(0, parent));
+        return MethodHandles.foldArguments(permuted, 1, combiner);
+    }
+
+    MethodHandle compose(MethodHandle target) {
+        var parameters = target.type();
+        var filters = new MethodHandle[extractors.length];
+        for (var i = 0; i < filters.length; ++i) {
+            var from = types.get(sources[i]);
+            var to = parameters.parameterType(i + 1);
+            var extractor = extractors[i] == null ? MethodHandles.identity(from) : extractors[i];
+            if (markers[i] != null) {
+                // Default is applied before unboxing, so null never reaches primitive parameters
+                var wrapper = MethodType.methodType(to).wrap().returnType();
+                extractor = orElse(extractor.asType(MethodType.methodType(wrapper, from)), markers[i].value(to));
+            }
+            filters[i] = extractor.asType(MethodType.methodType(to, from));
+        }
+        // (owner, p0, ..., pN) -> (owner, slot(p0), ..., slot(pN))
+        var ret = MethodHandles.filterArguments(target, 1, filters);
+        // (owner, slot(p0), ..., slot(pN)) -> (owner, s0, ..., sM)
+        var reorder = new int[sources.length + 1];
+        for (var i = 0; i < sources.length; ++i) {
+            reorder[i + 1] = sources[i] + 1;
+        }
+        var type = MethodType.methodType(parameters.returnType(), types).insertParameterTypes(0, Object.class);
+        ret = MethodHandles.permuteArguments(ret, type, reorder);
+        // (owner, s0, ..., sM) -> (owner, s0)
+        for (var i = types.size() - 1; i > 0; --i) {
+            ret = fold(ret, i);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,187 @@
+package com.github.romanqed.unpackr.invoke;
+
+import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.CastAccess;
+import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.IndexAccess;
+import com.github.romanqed.unpackr.MemberAccess;
+import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
+import com.github.romanqed.unpackr.Unpacker;
+import com.github.romanqed.unpackr.WriteAccess;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+/**
+ * An {@link Unpacker} implementation that composes unpacking logic from {@link java.lang.invoke.MethodHandle}s.
+ * <p>
+ * Every member of the access chains is unreflected into a method handle, and the whole access tree is folded
+ * into a single handle with the {@code (Object, Object)Object} type using {@link MethodHandles#filterArguments},
+ * {@link MethodHandles#foldArguments} and {@link MethodHandles#permuteArguments}. Intermediate values shared by
+ * several chains are evaluated only once per invocation. No classes are defined and no argument arrays
+ * are allocated on invocation.
+ *
+ * <h3>Usage Example</h3>
+ * Suppose we have a class {@code Ctx} with methods {@code getRq()} and {@code getRp()},
+ * and their return types have methods {@code getRqProps()} and {@code getRpProps()} respectively.
+ * The goal is to invoke a method that accepts the results of those nested calls.
+ *
+ * <pre>{@code
+ * var unpacker = new InvokeUnpacker(MethodHandles.lookup());
+ * var method = Target.class.getMethod("handle", Map.class, Map.class);
+ * var rqPropsAccess = MemberAccess.of()
+ *           .of(Ctx.class)
+ *           .of(Ctx.class.getMethod("getRq"))
+ *           .of(Rq.class.getMethod("getRqProps"))
+ *           .build();
+ * var rpPropsAccess = MemberAccess.of()
+ *           .of(Ctx.class)
+ *           .of(Ctx.class.getMethod("getRp"))
+ *           .of(Rp.class.getMethod("getRpProps"))
+ *           .build();
+ * var function = unpacker.unpack(Ctx.class, method, rqPropsAccess, rpPropsAccess);
+ * }</pre>
+ * <p>
+ * This function can now be used to dynamically extract data from a {@code Ctx} instance
+ * and pass it to the target method.
+ *
+ * @see com.github.romanqed.unpackr.Unpacker
+ * @see com.github.romanqed.unpackr.MemberAccess
+ * @see com.github.romanqed.unpackr.MemberAccessBuilder
+ */
+public final class InvokeUnpacker implements Unpacker {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+    private final MethodHandles.Lookup lookup;
+
+    /**
+     * Constructs a new {@code InvokeUnpacker} with the specified {@link MethodHandles.Lookup}.
+     * <p>
+     * The lookup is used to unreflect the target method and all members of the access chains,
+     * so it must have access to all of them.
+     *
+     * @param lookup the lookup used to unreflect members, must not be {@code null}
+     */
+    public InvokeUnpacker(MethodHandles.Lookup lookup) {
+        this.lookup = Objects.requireNonNull(lookup);
+    }
+
+    /**
+     * Constructs a new {@code InvokeUnpacker} using {@link MethodHandles#publicLookup()},
+     * so only public members of public classes can be accessed.
+     */
+    public InvokeUnpacker() {
+        this(MethodHandles.publicLookup());
+    }
+
+    private MethodHandle process(FieldAccess access) {
+        var field = access.member();
+        try {
+            return lookup.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field: " + field, e);
+        }
+    }
+
+    private MethodHandle unreflect(Method method) {
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access method: " + method, e);
+        }
+    }
+
+    private MethodHandle process(MethodAccess access) {
+        var ret = unreflect(access.member());
+        var arguments = access.arguments();
+        if (arguments == null || arguments.length == 0) {
+            return ret;
+        }
+        // Bind constant arguments right after the accessed value
+        return MethodHandles.insertArguments(ret, 1, arguments);
+    }
+
+    private MethodHandle process(MemberAccess access) {
+        if (access.getClass() == FieldAccess.class) {
+            return process((FieldAccess) access);
+        }
+        if (access.getClass() == IndexAccess.class) {
+            var index = (IndexAccess) access;
+            return MethodHandles.insertArguments(MethodHandles.arrayElementGetter(index.type()), 1, index.index());
+        }
+        if (access.getClass() == CastAccess.class) {
+            // Value is cast when the step is adapted to the previous type
+            return MethodHandles.identity(((CastAccess) access).type());
+        }
+        return process((MethodAccess) access);
+    }
+
+    private Node process(MemberAccess[][] accesses, Method target, Class<?> packed) {
+        var ret = new Node(null);
+        var parameters = target.getParameterTypes();
+        for (var i = 0; i < accesses.length; ++i) {
+            var access = accesses[i];
+            if (access == null) {
+                if (packed != parameters[i]) {
+                    throw new IllegalArgumentException("Mismatched types: " + parameters[i] + ", " + packed);
+                }
+                ret.addIndex(i);
+                continue;
+            }
+            if (WriteAccess.find(access) != null) {
+                throw new IllegalArgumentException("Write chains can only be used by a packer: " + i);
+            }
+            var node = ret;
+            var length = access.length;
+            var nullSafe = NullSafeAccess.find(access) != null;
+            if (nullSafe) {
+                node = ret.safe();
+                --length;
+            }
+            for (var j = 0; j < length; ++j) {
+                var member = access[j];
+                var found = node.find(member);
+                if (found == null) {
+                    var step = process(member);
+                    found = new Node(nullSafe ? HandleComposer.nullSafe(step) : step);
+                    node.attach(member, found);
+                }
+                node = found;
+            }
+            node.addIndex(i);
+        }
+        return ret;
+    }
+
+    private MethodHandle adaptTarget(Method target) {
+        var ret = unreflect(target);
+        if (Modifier.isStatic(target.getModifiers())) {
+            ret = MethodHandles.dropArguments(ret, 0, Object.class);
+        }
+        // Boxes primitive results and replaces void with null
+        return ret.asType(ret.type().changeParameterType(0, Object.class).changeReturnType(Object.class));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+        if (target.getParameterCount() != accesses.length) {
+            throw new IllegalArgumentException(
+                    "The size of the accesses array does not match the parameters of the target method"
+            );
+        }
+        var root = process(accesses, target, packed);
+        var markers = new NullSafeAccess[accesses.length];
+        for (var i = 0; i < markers.length; ++i) {
+            markers[i] = NullSafeAccess.find(accesses[i]);
+        }
+        var composer = new HandleComposer(packed, markers);
+        composer.collect(root);
+        var handle = composer.compose(adaptTarget(target));
+        return new HandleInvoker(handle.asType(INVOKER_TYPE));
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.romanqed.unpackr.invoke;
+
+import com.github.romanqed.unpackr.MemberAccess;
+
+import java.lang.invoke.MethodHandle;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+final class Node {
+    final MethodHandle step;
+    Map<MemberAccess, Node> children;
+    List<Integer> indexes;
+    Node safe;
+
+    Node(MethodHandle step) {
+        this.step = step;
+    }
+
+    Node find(MemberAccess access) {
+        return children == null ? null : children.get(access);
+    }
+
+    void attach(MemberAccess access, Node node) {
+        if (children == null) {
+            children = new HashMap<>();
+        }
+        children.put(access, node);
+    }
+
+    Node safe() {
+        if (safe == null) {
+            safe = new Node(null);
+        }
+        return safe;
+    }
+
+    void addIndex(int index) {
+        if (indexes == null) {
+            indexes = new LinkedList<>();
+        }
+        indexes.add(index);
+    }
+
+    int uses() {
+        var ret = 0;
+        if (children != null) {
+            ret += children.size();
+        }
+        if (indexes != null) {
+            ret += indexes.size();
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,7 @@
+module com.github.romanqed.unpackr.invoke {
+    // Imports
+    requires com.github.romanqed.jfunc;
+    requires com.github.romanqed.unpackr;
+    // Exports
+    exports com.github.romanqed.unpackr.invoke;
+}
@@ -0,0 +1,298 @@
+package com.github.romanqed.unpackr.invoke;
+
+import com.github.romanqed.unpackr.MemberAccess;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class InvokeUnpackerTest {
+
+    public static String handle(Ctx ctx, String aProp1, String aProp2, String bProp1, String bProp2, String c) {
+        assertNotNull(ctx);
+        assertEquals(ctx.getA().getAProps().get("aProp1"), aProp1);
+        assertEquals(ctx.getA().getAProps().get("aProp2"), aProp2);
+        assertEquals(ctx.getB().getBProps().get("bProp1"), bProp1);
+        assertEquals(ctx.getB().getBProps().get("bProp2"), bProp2);
+        assertEquals(Ctx.getC(ctx).getStrVal(), c);
+        return "handled";
+    }
+
+    @Test
+    public void testUnpack() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var bProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("get", Object.class), "bProp1")
+                .build();
+        var bProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("get", Object.class), "bProp2")
+                .build();
+        var cStrVal = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getC", Ctx.class))
+                .of(C.class.getMethod("getStrVal"))
+                .build();
+        var unpacker = new InvokeUnpacker();
+        var target = InvokeUnpackerTest.class.getMethod(
+                "handle", Ctx.class, String.class, String.class, String.class, String.class, String.class
+        );
+        var func = unpacker.unpack(Ctx.class, target, null, aProp1, aProp2, bProp1, bProp2, cStrVal);
+        assertEquals("handled", func.invoke(null, new CtxImpl()));
+    }
+
+    public static String join(String aProp1, String aProp3, String bProp1) {
+        return aProp1 + aProp3 + bProp1;
+    }
+
+    public static int sizes(int a, int b) {
+        return a + b;
+    }
+
+    @Test
+    public void testSharedPrefix() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var unpacker = new InvokeUnpacker();
+        var join = InvokeUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        var func = unpacker.unpack(Ctx.class, join, aProp1, aProp2, aProp1);
+        var counter = new int[1];
+        var ctx = new Ctx() {
+            @Override
+            public A getA() {
+                ++counter[0];
+                return new CtxImpl().getA();
+            }
+
+            @Override
+            public B getB() {
+                return new CtxImpl().getB();
+            }
+        };
+        assertEquals("ValueOfAProp1ValueOfAProp2ValueOfAProp1", func.invoke(null, ctx));
+        assertEquals(1, counter[0]);
+        // Shared values are not kept between invocations
+        func.invoke(null, ctx);
+        assertEquals(2, counter[0]);
+    }
+
+    @Test
+    public void testNullSafe() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .nullSafe("none")
+                .build();
+        var aProp3 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp3")
+                .nullSafe("none")
+                .build();
+        var bProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("get", Object.class), "bProp1")
+                .nullSafe()
+                .build();
+        var aSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe()
+                .build();
+        var bSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe(5)
+                .build();
+        var unpacker = new InvokeUnpacker();
+        var join = InvokeUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        var sum = InvokeUnpackerTest.class.getMethod("sizes", int.class, int.class);
+        var joinFunc = unpacker.unpack(Ctx.class, join, aProp1, aProp3, bProp1);
+        var sumFunc = unpacker.unpack(Ctx.class, sum, aSize, bSize);
+        var missing = new Ctx() {
+            @Override
+            public A getA() {
+                return new CtxImpl().getA();
+            }
+
+            @Override
+            public B getB() {
+                return null;
+            }
+        };
+        assertEquals("ValueOfAProp1noneValueOfBProp1", joinFunc.invoke(null, new CtxImpl()));
+        assertEquals("ValueOfAProp1nonenull", joinFunc.invoke(null, missing));
+        assertEquals("nonenonenull", joinFunc.invoke(null, null));
+        assertEquals(4, sumFunc.invoke(null, new CtxImpl()));
+        assertEquals(7, sumFunc.invoke(null, missing));
+        assertEquals(5, sumFunc.invoke(null, null));
+    }
+
+    @Test
+    public void testWriteChain() throws Throwable {
+        var write = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .set(Map.class.getMethod("put", Object.class, Object.class), "aProp1")
+                .build();
+        var unpacker = new InvokeUnpacker();
+        var join = InvokeUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Ctx.class, join, write, write, write));
+    }
+
+    public static String cast(int length, String upper) {
+        return length + upper;
+    }
+
+    @Test
+    public void testCast() throws Throwable {
+        // Interface method is inherited by the root type, map value is cast to its actual type
+        var length = MemberAccess.of()
+                .of(CtxImpl.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("length"))
+                .build();
+        var upper = MemberAccess.of()
+                .of(CtxImpl.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("toUpperCase"))
+                .build();
+        var unpacker = new InvokeUnpacker();
+        var target = InvokeUnpackerTest.class.getMethod("cast", int.class, String.class);
+        var func = unpacker.unpack(CtxImpl.class, target, length, upper);
+        assertEquals("13VALUEOFAPROP1", func.invoke(null, new CtxImpl()));
+    }
+
+    public static String elements(long first, long extra, Object value, String attachment) {
+        return first + ":" + extra + ":" + value + ":" + attachment;
+    }
+
+    @Test
+    public void testIndex() throws Throwable {
+        var first = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("numbers"))
+                .index(0)
+                .build();
+        var extra = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("extra"))
+                .index(1)
+                .nullSafe(-1L)
+                .build();
+        var value = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("values"))
+                .index(1)
+                .build();
+        var attachment = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("attachments"))
+                .index(0)
+                .build();
+        var target = InvokeUnpackerTest.class.getMethod("elements", long.class, long.class, Object.class, String.class);
+        var unpacker = new InvokeUnpacker();
+        var func = unpacker.unpack(Payload.class, target, first, extra, value, attachment);
+        var payload = new Payload(new long[]{5}, null, new Object[]{"a", "b"}, List.of("x"));
+        assertEquals("5:-1:b:x", func.invoke(null, payload));
+    }
+
+    public static final class Payload {
+        public final long[] numbers;
+        public final long[] extra;
+        public final Object[] values;
+        public final List<String> attachments;
+
+        public Payload(long[] numbers, long[] extra, Object[] values, List<String> attachments) {
+            this.numbers = numbers;
+            this.extra = extra;
+            this.values = values;
+            this.attachments = attachments;
+        }
+    }
+
+    public interface Ctx {
+        static C getC(Ctx ctx) {
+            return ((CtxImpl) ctx).getC();
+        }
+
+        A getA();
+
+        B getB();
+    }
+
+    public interface A {
+        Map<String, String> getAProps();
+    }
+
+    public interface B {
+        Map<String, String> getBProps();
+    }
+
+    public interface C {
+        String getStrVal();
+    }
+
+    public static final class CtxImpl implements Ctx {
+
+        @Override
+        public A getA() {
+            return () -> Map.of("aProp1", "ValueOfAProp1", "aProp2", "ValueOfAProp2");
+        }
+
+        @Override
+        public B getB() {
+            return () -> Map.of("bProp1", "ValueOfBProp1", "bProp2", "ValueOfBProp2");
+        }
+
+        C getC() {
+            return () -> "ValueOfCStrVal";
+        }
+    }
+}
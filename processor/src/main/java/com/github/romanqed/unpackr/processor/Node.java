@@ -0,0 +1,47 @@
+package com.github.romanqed.unpackr.processor;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+final class Node {
+    final Node parent;
+    final Step step;
+    Map<String, Node> children;
+    List<Integer> indexes;
+    String variable;
+
+    Node(Node parent, Step step) {
+        this.parent = parent;
+        this.step = step;
+    }
+
+    Node add(List<Step> steps, int index) {
+        var ret = this;
+        for (var step : steps) {
+            if (ret.children == null) {
+                // Keep declaration order, so generated sources are stable
+                ret.children = new LinkedHashMap<>();
+            }
+            var parent = ret;
+            ret = ret.children.computeIfAbsent(step.key, k -> new Node(parent, step));
+        }
+        if (ret.indexes == null) {
+            ret.indexes = new LinkedList<>();
+        }
+        ret.indexes.add(index);
+        return ret;
+    }
+
+    int uses() {
+        var ret = 0;
+        if (children != null) {
+            ret += children.size();
+        }
+        if (indexes != null) {
+            ret += indexes.size();
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.romanqed.unpackr.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Copy of the core path parser. Processor runs inside javac with no dependencies, and core keeps
+// the parser out of its exported package. Both must accept the same syntax, so keep them in sync.
+final class PathParser {
+    private final String path;
+    private int position;
+
+    private PathParser(String path) {
+        this.path = path;
+    }
+
+    static List<Segment> parse(String path) {
+        return new PathParser(path).parse();
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position + " in path '" + path + "'");
+    }
+
+    private String parseName() {
+        var start = position;
+        if (position == path.length() || !Character.isJavaIdentifierStart(path.charAt(position))) {
+            throw error("Expected member name");
+        }
+        ++position;
+        while (position < path.length() && Character.isJavaIdentifierPart(path.charAt(position))) {
+            ++position;
+        }
+        return path.substring(start, position);
+    }
+
+    private Segment parseIndex() {
+        // Skip '['
+        ++position;
+        if (position == path.length()) {
+            throw error("Unexpected end of path");
+        }
+        var quote = path.charAt(position);
+        Segment ret;
+        if (quote == '\'' || quote == '"') {
+            var end = path.indexOf(quote, position + 1);
+            if (end < 0) {
+                throw error("Unclosed string key");
+            }
+            ret = new Segment(Segment.KEY, path.substring(position + 1, end), -1);
+            position = end + 1;
+        } else {
+            var start = position;
+            while (position < path.length() && Character.isDigit(path.charAt(position))) {
+                ++position;
+            }
+            if (start == position) {
+                throw error("Expected string key or index");
+            }
+            try {
+                ret = new Segment(Segment.INDEX, null, Integer.parseInt(path.substring(start, position)));
+            } catch (NumberFormatException e) {
+                throw error("Index is too large");
+            }
+        }
+        if (position == path.length() || path.charAt(position) != ']') {
+            throw error("Expected ']'");
+        }
+        ++position;
+        return ret;
+    }
+
+    private List<Segment> parse() {
+        var ret = new ArrayList<Segment>();
+        if (path.isEmpty()) {
+            return ret;
+        }
+        // Path can start with an index applied to the packed object itself
+        if (path.charAt(0) != '[') {
+            ret.add(new Segment(Segment.NAME, parseName(), -1));
+        }
+        while (position < path.length()) {
+            var c = path.charAt(position);
+            if (c == '.') {
+                ++position;
+                ret.add(new Segment(Segment.NAME, parseName(), -1));
+            } else if (c == '[') {
+                ret.add(parseIndex());
+            } else {
+                throw error("Unexpected character '" + c + "'");
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.romanqed.unpackr.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+final class PathResolver {
+    private final Elements elements;
+    private final Types types;
+    private final TypeElement map;
+    private final TypeElement list;
+
+    PathResolver(ProcessingEnvironment environment) {
+        this.elements = environment.getElementUtils();
+        this.types = environment.getTypeUtils();
+        this.map = elements.getTypeElement("java.util.Map");
+        this.list = elements.getTypeElement("java.util.List");
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    static String literal(String value) {
+        var ret = new StringBuilder(value.length() + 2).append('"');
+        for (var i = 0; i < value.length(); ++i) {
+            var c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ret.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                ret.append(String.format("\\u%04x", (int) c));
+            } else {
+                ret.append(c);
+            }
+        }
+        return ret.append('"').toString();
+    }
+
+    TypeMirror normalize(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                return normalize(((TypeVariable) type).getUpperBound());
+            case WILDCARD:
+                var bound = ((WildcardType) type).getExtendsBound();
+                return bound == null ? elements.getTypeElement("java.lang.Object").asType() : normalize(bound);
+            case INTERSECTION:
+                return normalize(((IntersectionType) type).getBounds().get(0));
+            case DECLARED:
+            case ARRAY:
+                return type;
+            default:
+                return type.getKind().isPrimitive() ? type : types.erasure(type);
+        }
+    }
+
+    private boolean isAccessible(Element element, String pkg) {
+        var modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return elements.getPackageOf(element).getQualifiedName().contentEquals(pkg);
+    }
+
+    private DeclaredType asDeclared(TypeMirror type, String name) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw new IllegalArgumentException("Cannot resolve '" + name + "' on " + type);
+        }
+        return (DeclaredType) type;
+    }
+
+    private ExecutableElement findMethod(DeclaredType type, String name, String pkg) {
+        var element = (TypeElement) type.asElement();
+        for (var method : ElementFilter.methodsIn(elements.getAllMembers(element))) {
+            if (!method.getSimpleName().contentEquals(name)
+                    || !method.getParameters().isEmpty()
+                    || method.getModifiers().contains(Modifier.STATIC)
+                    || method.getReturnType().getKind() == TypeKind.VOID
+                    || !isAccessible(method, pkg)) {
+                continue;
+            }
+            return method;
+        }
+        return null;
+    }
+
+    private VariableElement findField(DeclaredType type, String name, String pkg) {
+        var element = (TypeElement) type.asElement();
+        for (var field : ElementFilter.fieldsIn(elements.getAllMembers(element))) {
+            if (!field.getSimpleName().contentEquals(name)
+                    || field.getModifiers().contains(Modifier.STATIC)
+                    || !isAccessible(field, pkg)) {
+                continue;
+            }
+            return field;
+        }
+        return null;
+    }
+
+    private Step ofMethod(DeclaredType type, ExecutableElement method) {
+        var name = method.getSimpleName().toString();
+        var resolved = (ExecutableType) types.asMemberOf(type, method);
+        return new Step("m:" + name, "." + name + "()", normalize(resolved.getReturnType()));
+    }
+
+    private Step resolveName(TypeMirror type, String name, String pkg) {
+        var declared = asDeclared(type, name);
+        var method = findMethod(declared, name, pkg);
+        if (method != null) {
+            return ofMethod(declared, method);
+        }
+        var capitalized = capitalize(name);
+        method = findMethod(declared, "get" + capitalized, pkg);
+        if (method != null) {
+            return ofMethod(declared, method);
+        }
+        method = findMethod(declared, "is" + capitalized, pkg);
+        if (method != null) {
+            return ofMethod(declared, method);
+        }
+        var field = findField(declared, name, pkg);
+        if (field != null) {
+            var resolved = types.asMemberOf(declared, field);
+            return new Step("f:" + name, "." + name, normalize(resolved));
+        }
+        throw new IllegalArgumentException("Cannot find accessible member '" + name + "' in " + type);
+    }
+
+    private ExecutableElement findGetter(TypeElement owner, TypeKind parameter) {
+        for (var method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+            if (!method.getSimpleName().contentEquals("get")) {
+                continue;
+            }
+            var parameters = method.getParameters();
+            if (parameters.size() == 1 && parameters.get(0).asType().getKind() == parameter) {
+                return method;
+            }
+        }
+        throw new IllegalStateException("Cannot find get method in " + owner);
+    }
+
+    private DeclaredType asSubtype(TypeMirror type, TypeElement owner, String segment) {
+        if (type.getKind() != TypeKind.DECLARED || !types.isSubtype(types.erasure(type), types.erasure(owner.asType()))) {
+            throw new IllegalArgumentException("Cannot apply " + segment + " to " + type + ", " + owner + " expected");
+        }
+        return (DeclaredType) type;
+    }
+
+    private Step resolveKey(TypeMirror type, String key) {
+        var declared = asSubtype(type, map, "['" + key + "']");
+        var get = findGetter(map, TypeKind.DECLARED);
+        var resolved = (ExecutableType) types.asMemberOf(declared, get);
+        var literal = literal(key);
+        return new Step("k:" + literal, ".get(" + literal + ")", normalize(resolved.getReturnType()));
+    }
+
+    private Step resolveIndex(TypeMirror type, int index) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            var component = ((ArrayType) type).getComponentType();
+            return new Step("a:" + index, "[" + index + "]", normalize(component));
+        }
+        var declared = asSubtype(type, list, "[" + index + "]");
+        var get = findGetter(list, TypeKind.INT);
+        var resolved = (ExecutableType) types.asMemberOf(declared, get);
+        return new Step("i:" + index, ".get(" + index + ")", normalize(resolved.getReturnType()));
+    }
+
+    List<Step> resolve(TypeMirror root, String path, String pkg) {
+        var ret = new ArrayList<Step>();
+        var type = root;
+        for (var segment : PathParser.parse(path)) {
+            Step step;
+            if (segment.kind == Segment.NAME) {
+                step = resolveName(type, segment.value, pkg);
+            } else if (segment.kind == Segment.KEY) {
+                step = resolveKey(type, segment.value);
+            } else {
+                step = resolveIndex(type, segment.index);
+            }
+            ret.add(step);
+            type = step.type;
+        }
+        return ret;
+    }
+}
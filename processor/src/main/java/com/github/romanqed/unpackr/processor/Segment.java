@@ -0,0 +1,17 @@
+package com.github.romanqed.unpackr.processor;
+
+// Duplicated from core together with PathParser
+final class Segment {
+    static final int NAME = 0;
+    static final int KEY = 1;
+    static final int INDEX = 2;
+    final int kind;
+    final String value;
+    final int index;
+
+    Segment(int kind, String value, int index) {
+        this.kind = kind;
+        this.value = value;
+        this.index = index;
+    }
+}
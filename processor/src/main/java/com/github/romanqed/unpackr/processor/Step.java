@@ -0,0 +1,15 @@
+package com.github.romanqed.unpackr.processor;
+
+import javax.lang.model.type.TypeMirror;
+
+final class Step {
+    final String key;
+    final String access;
+    final TypeMirror type;
+
+    Step(String key, String access, TypeMirror type) {
+        this.key = key;
+        this.access = access;
+        this.type = type;
+    }
+}
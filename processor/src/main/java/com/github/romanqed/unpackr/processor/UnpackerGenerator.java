@@ -0,0 +1,218 @@
+package com.github.romanqed.unpackr.processor;
+
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.List;
+
+final class UnpackerGenerator {
+    static final String UNPACKABLE = "com.github.romanqed.unpackr.Unpackable";
+    static final String UNPACK = "com.github.romanqed.unpackr.Unpack";
+    static final String INDEX_SUFFIX = "$$Unpackers";
+    private static final String INDEX = "com.github.romanqed.unpackr.UnpackerIndex";
+    private static final String FUNCTION2 = "com.github.romanqed.jfunc.Function2";
+    private final Elements elements;
+    private final Types types;
+    private final Messager messager;
+    private final PathResolver resolver;
+
+    UnpackerGenerator(ProcessingEnvironment environment) {
+        this.elements = environment.getElementUtils();
+        this.types = environment.getTypeUtils();
+        this.messager = environment.getMessager();
+        this.resolver = new PathResolver(environment);
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String name) {
+        for (var mirror : element.getAnnotationMirrors()) {
+            var type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object getValue(AnnotationMirror mirror) {
+        for (var entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("Annotation has no value: " + mirror);
+    }
+
+    private static void checkAccessible(Element element) {
+        while (element != null && element.getKind() != ElementKind.PACKAGE) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new IllegalArgumentException(element + " must not be private");
+            }
+            element = element.getEnclosingElement();
+        }
+    }
+
+    private String name(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    private String expression(Node node) {
+        if (node.parent == null) {
+            return "packed";
+        }
+        if (node.variable != null) {
+            return node.variable;
+        }
+        return expression(node.parent) + node.step.access;
+    }
+
+    private void declare(StringBuilder out, Node node, int[] count) {
+        if (node.children == null) {
+            return;
+        }
+        for (var child : node.children.values()) {
+            if (child.uses() > 1) {
+                // Cache value used more than once, like AsmUnpacker does
+                var variable = "v" + count[0]++;
+                out.append("            var ").append(variable).append(" = ").append(expression(child)).append(";\n");
+                child.variable = variable;
+            }
+            declare(out, child, count);
+        }
+    }
+
+    private void generateUnpacker(StringBuilder out,
+                                  String name,
+                                  TypeElement owner,
+                                  ExecutableElement method,
+                                  TypeMirror packed,
+                                  String pkg) {
+        var parameters = method.getParameters();
+        var root = new Node(null, null);
+        var arguments = new Node[parameters.size()];
+        for (var i = 0; i < arguments.length; ++i) {
+            var parameter = parameters.get(i);
+            var unpack = findAnnotation(parameter, UNPACK);
+            if (unpack == null) {
+                if (!types.isSameType(types.erasure(parameter.asType()), packed)) {
+                    throw new IllegalArgumentException(
+                            "Parameter " + parameter + " without @Unpack must be of packed type " + packed
+                    );
+                }
+                arguments[i] = root.add(List.of(), i);
+                continue;
+            }
+            var steps = resolver.resolve(packed, (String) getValue(unpack), pkg);
+            arguments[i] = root.add(steps, i);
+        }
+        var packedName = name(packed);
+        out.append("    private static final class ").append(name).append(" implements ")
+                .append(FUNCTION2).append("<java.lang.Object, ").append(packedName).append(", java.lang.Object> {\n\n")
+                .append("        @Override\n")
+                .append("        public java.lang.Object invoke(java.lang.Object owner, ").append(packedName)
+                .append(" packed) throws java.lang.Throwable {\n");
+        declare(out, root, new int[1]);
+        var isVoid = method.getReturnType().getKind() == TypeKind.VOID;
+        out.append(isVoid ? "            " : "            return ");
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            out.append(name(owner.asType()));
+        } else {
+            out.append("((").append(name(owner.asType())).append(") owner)");
+        }
+        out.append('.').append(method.getSimpleName()).append('(');
+        for (var i = 0; i < arguments.length; ++i) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            var node = arguments[i];
+            var type = parameters.get(i).asType();
+            var from = node.step == null ? packed : node.step.type;
+            if (!types.isAssignable(from, type)) {
+                out.append('(').append(name(type)).append(") ");
+            }
+            out.append(expression(node));
+        }
+        out.append(");\n");
+        if (isVoid) {
+            out.append("            return null;\n");
+        }
+        out.append("        }\n    }\n");
+    }
+
+    private String packageOf(TypeElement owner) {
+        return elements.getPackageOf(owner).getQualifiedName().toString();
+    }
+
+    String indexName(TypeElement owner) {
+        var binary = elements.getBinaryName(owner).toString();
+        var pkg = packageOf(owner);
+        return (pkg.isEmpty() ? binary : binary.substring(pkg.length() + 1)) + INDEX_SUFFIX;
+    }
+
+    String generate(TypeElement owner, List<ExecutableElement> methods) {
+        var pkg = packageOf(owner);
+        var unpackers = new StringBuilder();
+        var find = new StringBuilder();
+        var fields = new StringBuilder();
+        var count = 0;
+        for (var method : methods) {
+            var packed = types.erasure((TypeMirror) getValue(findAnnotation(method, UNPACKABLE)));
+            var name = "Unpacker" + count;
+            var generated = new StringBuilder("\n");
+            try {
+                checkAccessible(method);
+                if (packed.getKind() != TypeKind.DECLARED) {
+                    throw new IllegalArgumentException("Packed type must be a class or an interface");
+                }
+                generateUnpacker(generated, name, owner, method, packed, pkg);
+            } catch (IllegalArgumentException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), method);
+                continue;
+            }
+            unpackers.append(generated);
+            fields.append("    private static final java.lang.Class<?>[] PARAMETERS").append(count).append(" = {");
+            var parameters = method.getParameters();
+            for (var i = 0; i < parameters.size(); ++i) {
+                fields.append(i > 0 ? ", " : "").append(name(parameters.get(i).asType())).append(".class");
+            }
+            fields.append("};\n");
+            fields.append("    private static final ").append(FUNCTION2).append("<java.lang.Object, ?, java.lang.Object> ")
+                    .append("UNPACKER").append(count).append(" = new ").append(name).append("();\n");
+            find.append("        if (packed == ").append(name(packed)).append(".class\n")
+                    .append("                && name.equals(").append(PathResolver.literal(method.getSimpleName().toString()))
+                    .append(")\n")
+                    .append("                && java.util.Arrays.equals(parameters, PARAMETERS").append(count)
+                    .append(")) {\n")
+                    .append("            return UNPACKER").append(count).append(";\n")
+                    .append("        }\n");
+            ++count;
+        }
+        if (count == 0) {
+            return null;
+        }
+        var out = new StringBuilder();
+        out.append("// Generated by unpackr-processor. Do not edit.\n");
+        if (!pkg.isEmpty()) {
+            out.append("package ").append(pkg).append(";\n\n");
+        }
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(indexName(owner)).append(" implements ").append(INDEX)
+                .append(" {\n")
+                .append(fields)
+                .append("\n    @Override\n")
+                .append("    public ").append(FUNCTION2).append("<java.lang.Object, ?, java.lang.Object> find(")
+                .append("java.lang.Class<?> packed, java.lang.reflect.Method target) {\n")
+                .append("        var name = target.getName();\n")
+                .append("        var parameters = target.getParameterTypes();\n")
+                .append(find)
+                .append("        return null;\n")
+                .append("    }\n")
+                .append(unpackers)
+                .append("}\n");
+        return out.toString();
+    }
+}
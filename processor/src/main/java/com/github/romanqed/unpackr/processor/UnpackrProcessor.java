@@ -0,0 +1,79 @@
+package com.github.romanqed.unpackr.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An annotation processor that generates unpackers for {@code @Unpackable} methods at build time.
+ * <p>
+ * For every class declaring annotated methods, the processor emits a plain Java source named
+ * {@code <DeclaringClass>$$Unpackers} in the same package. The generated class implements
+ * {@code UnpackerIndex} and contains one ordinary class per annotated method, in which all parameter
+ * paths are compiled into direct member calls. Shared path prefixes are evaluated only once.
+ * At runtime the generated unpackers are obtained through {@code UnpackerRegistry}, so neither bytecode
+ * generation nor reflection is required.
+ */
+public final class UnpackrProcessor extends AbstractProcessor {
+    private UnpackerGenerator generator;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment environment) {
+        super.init(environment);
+        this.generator = new UnpackerGenerator(environment);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(UnpackerGenerator.UNPACKABLE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        var messager = processingEnv.getMessager();
+        var groups = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+        for (var annotation : annotations) {
+            for (var element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.METHOD) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "@Unpackable can be applied to methods only", element);
+                    continue;
+                }
+                var owner = (TypeElement) element.getEnclosingElement();
+                groups.computeIfAbsent(owner, k -> new ArrayList<>()).add((ExecutableElement) element);
+            }
+        }
+        for (var entry : groups.entrySet()) {
+            var owner = entry.getKey();
+            var source = generator.generate(owner, entry.getValue());
+            if (source == null) {
+                continue;
+            }
+            var pkg = processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+            var name = generator.indexName(owner);
+            try {
+                var file = processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? name : pkg + "." + name, owner);
+                try (var writer = file.openWriter()) {
+                    writer.write(source);
+                }
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write unpackers: " + e.getMessage(), owner);
+            }
+        }
+        return true;
+    }
+}
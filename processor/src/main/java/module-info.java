@@ -0,0 +1,6 @@
+module com.github.romanqed.unpackr.processor {
+    // Imports
+    requires java.compiler;
+    // Services
+    provides javax.annotation.processing.Processor with com.github.romanqed.unpackr.processor.UnpackrProcessor;
+}
@@ -0,0 +1,200 @@
+package com.github.romanqed.unpackr.processor;
+
+import com.github.romanqed.unpackr.UnpackerRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class UnpackrProcessorTest {
+    private static final String HANDLER = String.join("\n",
+            "package test;",
+            "",
+            "import com.github.romanqed.unpackr.Unpack;",
+            "import com.github.romanqed.unpackr.Unpackable;",
+            "import com.github.romanqed.unpackr.processor.UnpackrProcessorTest.Ctx;",
+            "",
+            "public class Handler {",
+            "",
+            "    @Unpackable(Ctx.class)",
+            "    public String handle(Ctx ctx,",
+            "                         @Unpack(\"a.aProps['aProp1']\") String aProp1,",
+            "                         @Unpack(\"a.aProps['aProp2']\") String aProp2,",
+            "                         @Unpack(\"b.bProps['bProp1']\") String bProp1,",
+            "                         @Unpack(\"b.values[1]\") String bValue,",
+            "                         @Unpack(\"c.strVal\") Object c) {",
+            "        return aProp1 + aProp2 + bProp1 + bValue + c;",
+            "    }",
+            "",
+            "    @Unpackable(Ctx.class)",
+            "    public static String handle(@Unpack(\"c.strVal\") String c) {",
+            "        return c;",
+            "    }",
+            "",
+            "    @Unpackable(Ctx.class)",
+            "    public static long code(@Unpack(\"codes[1]\") long code) {",
+            "        return code;",
+            "    }",
+            "}"
+    );
+
+    private static final String INVALID = String.join("\n",
+            "package test;",
+            "",
+            "import com.github.romanqed.unpackr.Unpack;",
+            "import com.github.romanqed.unpackr.Unpackable;",
+            "import com.github.romanqed.unpackr.processor.UnpackrProcessorTest.Ctx;",
+            "",
+            "public class Invalid {",
+            "",
+            "    @Unpackable(Ctx.class)",
+            "    public void handle(@Unpack(\"a.unknown\") String value) {",
+            "    }",
+            "}"
+    );
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static boolean compile(Path output, DiagnosticCollector<JavaFileObject> diagnostics, JavaFileObject source)
+            throws IOException {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        try (var manager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            manager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output.toFile()));
+            manager.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(output.toFile()));
+            var options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:only");
+            var task = compiler.getTask(null, manager, diagnostics, options, null, List.of(source));
+            task.setProcessors(List.of(new UnpackrProcessor()));
+            if (!task.call()) {
+                return false;
+            }
+        }
+        // Compile the handler together with the generated index
+        try (var manager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            manager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output.toFile()));
+            var generated = output.resolve("test/" + source.getName().replaceAll(".*/|\\.java$", "")
+                    + UnpackerRegistry.INDEX_SUFFIX + ".java").toFile();
+            var sources = manager.getJavaFileObjectsFromFiles(List.of(generated));
+            var options = List.of("-classpath", System.getProperty("java.class.path"), "-proc:none");
+            var files = new java.util.ArrayList<JavaFileObject>();
+            files.add(source);
+            sources.forEach(files::add);
+            return compiler.getTask(null, manager, diagnostics, options, null, files).call();
+        }
+    }
+
+    @Test
+    public void testGenerate() throws Throwable {
+        var output = Files.createTempDirectory("unpackr");
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertTrue(compile(output, diagnostics, source("test.Handler", HANDLER)), diagnostics.getDiagnostics()::toString);
+        var generated = Files.readString(output.resolve("test/Handler" + UnpackerRegistry.INDEX_SUFFIX + ".java"));
+        // Shared prefixes must be evaluated once
+        assertEquals(1, generated.split("\\.getA\\(\\)", -1).length - 1);
+        assertEquals(1, generated.split("\\.getB\\(\\)", -1).length - 1);
+        try (var loader = new URLClassLoader(new java.net.URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            var handler = loader.loadClass("test.Handler");
+            var method = handler.getMethod(
+                    "handle", Ctx.class, String.class, String.class, String.class, String.class, Object.class
+            );
+            var func = UnpackerRegistry.get(Ctx.class, method);
+            var owner = handler.getDeclaredConstructor().newInstance();
+            assertEquals("ValueOfAProp1ValueOfAProp2ValueOfBProp1SecondValueOfCStrVal", func.invoke(owner, new CtxImpl()));
+            var staticMethod = handler.getMethod("handle", String.class);
+            assertEquals("ValueOfCStrVal", UnpackerRegistry.get(Ctx.class, staticMethod).invoke(null, new CtxImpl()));
+            var code = handler.getMethod("code", long.class);
+            assertEquals(4L, UnpackerRegistry.get(Ctx.class, code).invoke(null, new CtxImpl()));
+            assertNull(UnpackerRegistry.find(Ctx.class, handler.getMethod("toString")));
+            assertNull(UnpackerRegistry.find(Ctx.class, UnpackrProcessorTest.class.getMethod("testGenerate")));
+        }
+    }
+
+    @Test
+    public void testInvalidPath() throws IOException {
+        var output = Files.createTempDirectory("unpackr");
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertFalse(compile(output, diagnostics, source("test.Invalid", INVALID)));
+        var errors = diagnostics.getDiagnostics()
+                .stream()
+                .filter(e -> e.getKind() == Diagnostic.Kind.ERROR)
+                .count();
+        assertEquals(1, errors);
+        assertFalse(new File(output.toFile(), "test/Invalid" + UnpackerRegistry.INDEX_SUFFIX + ".java").exists());
+    }
+
+    public interface Ctx {
+        A getA();
+
+        B getB();
+
+        C getC();
+
+        long[] getCodes();
+    }
+
+    public interface A {
+        Map<String, String> getAProps();
+    }
+
+    public interface B {
+        Map<String, String> getBProps();
+
+        List<String> getValues();
+    }
+
+    public interface C {
+        String getStrVal();
+    }
+
+    public static final class CtxImpl implements Ctx {
+
+        @Override
+        public A getA() {
+            return () -> Map.of("aProp1", "ValueOfAProp1", "aProp2", "ValueOfAProp2");
+        }
+
+        @Override
+        public B getB() {
+            return new B() {
+                @Override
+                public Map<String, String> getBProps() {
+                    return Map.of("bProp1", "ValueOfBProp1");
+                }
+
+                @Override
+                public List<String> getValues() {
+                    return List.of("First", "Second");
+                }
+            };
+        }
+
+        @Override
+        public C getC() {
+            return () -> "ValueOfCStrVal";
+        }
+
+        @Override
+        public long[] getCodes() {
+            return new long[]{3, 4};
+        }
+    }
+}
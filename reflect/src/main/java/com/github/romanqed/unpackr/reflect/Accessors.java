@@ -2,6 +2,9 @@ package com.github.romanqed.unpackr.reflect;
 
 import com.github.romanqed.jfunc.Function1;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -19,29 +22,105 @@ final class Accessors {
     }
 
     static Function1 of(Function1 previous, Method method, Object[] arguments) {
-        var isStatic = Modifier.isStatic(method.getModifiers());
+        if (Modifier.isStatic(method.getModifiers())) {
+            // Method.invoke takes the previous value of static steps in a new array on every call
+            return ofHandle(previous, method, arguments);
+        }
         var isEmpty = arguments == null || arguments.length == 0;
         if (previous == null) {
-            if (isStatic) {
-                if (isEmpty) {
-                    return new StaticEmptyMethodAccessor(method);
-                }
-                return new StaticMethodAccessor(method, arguments);
-            }
             if (isEmpty) {
                 return new VirtualEmptyMethodAccessor(method);
             }
             return new VirtualMethodAccessor(method, arguments);
         }
-        if (isStatic) {
-            if (isEmpty) {
-                return new ChainedStaticEmptyMethodAccessor(previous, method);
-            }
-            return new ChainedStaticMethodAccessor(previous, method, arguments);
-        }
         if (isEmpty) {
             return new ChainedVirtualEmptyMethodAccessor(previous, method);
         }
         return new ChainedVirtualMethodAccessor(previous, method, arguments);
     }
+
+    static Function1 of(Function1 previous, Class<?> type) {
+        return new CastAccessor(previous == null ? IdentityAccessor.INSTANCE : previous, type);
+    }
+
+    static Function1 of(Function1 previous, int index) {
+        return new IndexAccessor(previous == null ? IdentityAccessor.INSTANCE : previous, index);
+    }
+
+    private static Function1 of(Function1 previous, MethodHandle handle) {
+        // Every step is adapted to (Object)Object, so invokeExact never needs a call-site conversion
+        handle = handle.asType(MethodType.genericMethodType(1));
+        if (previous == null) {
+            return new HandleAccessor(handle);
+        }
+        return new ChainedHandleAccessor(previous, handle);
+    }
+
+    static Function1 ofHandle(Function1 previous, Field field) {
+        MethodHandle handle;
+        try {
+            // Field is already accessible, so no access checks are performed
+            handle = MethodHandles.lookup().unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot unreflect field: " + field, e);
+        }
+        return of(previous, handle);
+    }
+
+    static Function1 ofHandle(Function1 previous, Class<?> type, int index) {
+        var handle = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(type), 1, index);
+        return of(previous, handle);
+    }
+
+    static Function1 ofHandle(Function1 previous, Method method, Object[] arguments) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot unreflect method: " + method, e);
+        }
+        // Both the receiver of virtual methods and the first parameter of static ones take the previous value
+        if (arguments != null && arguments.length != 0) {
+            handle = MethodHandles.insertArguments(handle, 1, arguments);
+        }
+        return of(previous, handle);
+    }
+
+    private static Function1 flat(Function1 previous, boolean nullSafe, byte opcode, Object member, Object[] arguments) {
+        // Steps of unshared chains are flattened into one accessor instead of nesting accessor calls
+        if (previous instanceof ChainAccessor) {
+            var chain = (ChainAccessor) previous;
+            if (chain.nullSafe == nullSafe) {
+                return chain.append(opcode, member, arguments);
+            }
+        }
+        return ChainAccessor.of(previous, nullSafe, opcode, member, arguments);
+    }
+
+    static Function1 flat(Function1 previous, boolean nullSafe, Field field) {
+        return flat(previous, nullSafe, ChainAccessor.FIELD, field, null);
+    }
+
+    static Function1 flat(Function1 previous, boolean nullSafe, Method method, Object[] arguments) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            // Static steps break the chain with a bound handle, so no array is built on every call
+            if (!nullSafe) {
+                return ofHandle(previous, method, arguments);
+            }
+            var step = ofHandle(null, method, arguments);
+            return new NullSafeAccessor(previous == null ? IdentityAccessor.INSTANCE : previous, step);
+        }
+        if (arguments == null || arguments.length == 0) {
+            return flat(previous, nullSafe, ChainAccessor.VIRTUAL, method, null);
+        }
+        return flat(previous, nullSafe, ChainAccessor.VIRTUAL_ARGS, method, arguments);
+    }
+
+    static Function1 flat(Function1 previous, boolean nullSafe, Class<?> type) {
+        return flat(previous, nullSafe, ChainAccessor.CAST, type, null);
+    }
+
+    static Function1 flat(Function1 previous, boolean nullSafe, int index) {
+        return flat(previous, nullSafe, ChainAccessor.INDEX, index, null);
+    }
 }
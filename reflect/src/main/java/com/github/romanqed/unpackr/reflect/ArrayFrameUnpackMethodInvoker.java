@@ -0,0 +1,28 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+@SuppressWarnings("rawtypes")
+final class ArrayFrameUnpackMethodInvoker implements Function2 {
+    final Function1[] slots;
+    final Function2 invoker;
+
+    ArrayFrameUnpackMethodInvoker(Function1[] slots, Function2 invoker) {
+        this.slots = slots;
+        this.invoker = invoker;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        // Too many shared values or parameters for locals, so they are kept in a frame allocated per call
+        // Slot 0 holds packed object, shared values are evaluated once in tree order
+        var frame = new Object[slots.length + 1];
+        frame[0] = packed;
+        for (var i = 0; i < slots.length; ++i) {
+            frame[i + 1] = slots[i].invoke(frame);
+        }
+        return invoker.invoke(owner, frame);
+    }
+}
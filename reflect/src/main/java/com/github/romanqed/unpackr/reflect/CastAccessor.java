@@ -0,0 +1,20 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+@SuppressWarnings("rawtypes")
+final class CastAccessor implements Function1 {
+    final Function1 previous;
+    final Class<?> type;
+
+    CastAccessor(Function1 previous, Class<?> type) {
+        this.previous = previous;
+        this.type = type;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        return type.cast(previous.invoke(o));
+    }
+}
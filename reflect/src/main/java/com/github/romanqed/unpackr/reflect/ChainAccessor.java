@@ -0,0 +1,88 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+@SuppressWarnings("rawtypes")
+final class ChainAccessor implements Function1 {
+    static final byte FIELD = 0;
+    static final byte VIRTUAL = 1;
+    static final byte VIRTUAL_ARGS = 2;
+    static final byte CAST = 3;
+    static final byte INDEX = 4;
+    private static final Object[] EMPTY = new Object[0];
+    final Function1 source;
+    final boolean nullSafe;
+    final byte[] opcodes;
+    final Object[] members;
+    final Object[][] arguments;
+
+    private ChainAccessor(Function1 source,
+                          boolean nullSafe,
+                          byte[] opcodes,
+                          Object[] members,
+                          Object[][] arguments) {
+        this.source = source;
+        this.nullSafe = nullSafe;
+        this.opcodes = opcodes;
+        this.members = members;
+        this.arguments = arguments;
+    }
+
+    static ChainAccessor of(Function1 source, boolean nullSafe, byte opcode, Object member, Object[] arguments) {
+        return new ChainAccessor(
+                source,
+                nullSafe,
+                new byte[]{opcode},
+                new Object[]{member},
+                new Object[][]{arguments}
+        );
+    }
+
+    ChainAccessor append(byte opcode, Object member, Object[] arguments) {
+        // Copy on append, since the same prefix may be extended by sibling chains
+        var length = opcodes.length;
+        var nextOpcodes = Arrays.copyOf(opcodes, length + 1);
+        var nextMembers = Arrays.copyOf(members, length + 1);
+        var nextArguments = Arrays.copyOf(this.arguments, length + 1);
+        nextOpcodes[length] = opcode;
+        nextMembers[length] = member;
+        nextArguments[length] = arguments;
+        return new ChainAccessor(source, nullSafe, nextOpcodes, nextMembers, nextArguments);
+    }
+
+    private Object step(int index, Object value) throws Throwable {
+        var member = members[index];
+        switch (opcodes[index]) {
+            case FIELD:
+                return ((Field) member).get(value);
+            case VIRTUAL:
+                return ((Method) member).invoke(value, EMPTY);
+            case VIRTUAL_ARGS:
+                return ((Method) member).invoke(value, arguments[index]);
+            case CAST:
+                return ((Class<?>) member).cast(value);
+            default:
+                return Array.get(value, (Integer) member);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        var value = source == null ? o : source.invoke(o);
+        var length = opcodes.length;
+        // One loop for all chains, so its profile is not split between accessor classes
+        for (var i = 0; i < length; ++i) {
+            if (nullSafe && value == null) {
+                return null;
+            }
+            value = step(i, value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class ChainedHandleAccessor implements Function1 {
+    final Function1 previous;
+    final MethodHandle handle;
+
+    ChainedHandleAccessor(Function1 previous, MethodHandle handle) {
+        this.previous = previous;
+        this.handle = handle;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        return (Object) handle.invokeExact(previous.invoke(o));
+    }
+}
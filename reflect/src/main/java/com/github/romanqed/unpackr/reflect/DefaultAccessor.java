@@ -0,0 +1,21 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+@SuppressWarnings("rawtypes")
+final class DefaultAccessor implements Function1 {
+    final Function1 previous;
+    final Object value;
+
+    DefaultAccessor(Function1 previous, Object value) {
+        this.previous = previous;
+        this.value = value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        var ret = previous.invoke(o);
+        return ret == null ? value : ret;
+    }
+}
@@ -0,0 +1,6 @@
+package com.github.romanqed.unpackr.reflect;
+
+interface FrameInvoker {
+
+    Object invoke(Object owner, Object s0, Object s1, Object s2, Object s3, Object s4) throws Throwable;
+}
@@ -0,0 +1,27 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class FrameInvoker1 implements FrameInvoker {
+    final MethodHandle handle;
+    final Function1 accessor0;
+    final int source0;
+
+    FrameInvoker1(MethodHandle handle, Function1[] accessors, int[] sources) {
+        this.handle = handle;
+        this.accessor0 = accessors[0];
+        this.source0 = sources[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object s0, Object s1, Object s2, Object s3, Object s4) throws Throwable {
+        return (Object) handle.invokeExact(
+                owner,
+                accessor0.invoke(FrameUnpackMethodInvoker.select(source0, s0, s1, s2, s3, s4))
+        );
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class FrameInvoker8 implements FrameInvoker {
+    final MethodHandle handle;
+    final Function1 accessor0;
+    final int source0;
+    final Function1 accessor1;
+    final int source1;
+    final Function1 accessor2;
+    final int source2;
+    final Function1 accessor3;
+    final int source3;
+    final Function1 accessor4;
+    final int source4;
+    final Function1 accessor5;
+    final int source5;
+    final Function1 accessor6;
+    final int source6;
+    final Function1 accessor7;
+    final int source7;
+
+    FrameInvoker8(MethodHandle handle, Function1[] accessors, int[] sources) {
+        this.handle = handle;
+        this.accessor0 = accessors[0];
+        this.source0 = sources[0];
+        this.accessor1 = accessors[1];
+        this.source1 = sources[1];
+        this.accessor2 = accessors[2];
+        this.source2 = sources[2];
+        this.accessor3 = accessors[3];
+        this.source3 = sources[3];
+        this.accessor4 = accessors[4];
+        this.source4 = sources[4];
+        this.accessor5 = accessors[5];
+        this.source5 = sources[5];
+        this.accessor6 = accessors[6];
+        this.source6 = sources[6];
+        this.accessor7 = accessors[7];
+        this.source7 = sources[7];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object s0, Object s1, Object s2, Object s3, Object s4) throws Throwable {
+        return (Object) handle.invokeExact(
+                owner,
+                accessor0.invoke(FrameUnpackMethodInvoker.select(source0, s0, s1, s2, s3, s4)),
+                accessor1.invoke(FrameUnpackMethodInvoker.select(source1, s0, s1, s2, s3, s4)),
+                accessor2.invoke(FrameUnpackMethodInvoker.select(source2, s0, s1, s2, s3, s4)),
+                accessor3.invoke(FrameUnpackMethodInvoker.select(source3, s0, s1, s2, s3, s4)),
+                accessor4.invoke(FrameUnpackMethodInvoker.select(source4, s0, s1, s2, s3, s4)),
+                accessor5.invoke(FrameUnpackMethodInvoker.select(source5, s0, s1, s2, s3, s4)),
+                accessor6.invoke(FrameUnpackMethodInvoker.select(source6, s0, s1, s2, s3, s4)),
+                accessor7.invoke(FrameUnpackMethodInvoker.select(source7, s0, s1, s2, s3, s4))
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+@SuppressWarnings("rawtypes")
+final class FrameUnpackMethodInvoker implements Function2 {
+    static final int MAX_SLOTS = 4;
+    final Function1 slot1;
+    final Function1 slot2;
+    final Function1 slot3;
+    final Function1 slot4;
+    final int source2;
+    final int source3;
+    final int source4;
+    final FrameInvoker invoker;
+
+    FrameUnpackMethodInvoker(Function1[] slots, int[] sources, FrameInvoker invoker) {
+        // The first slot is always evaluated from the packed object
+        this.slot1 = slots[0];
+        this.slot2 = slots.length > 1 ? slots[1] : null;
+        this.slot3 = slots.length > 2 ? slots[2] : null;
+        this.slot4 = slots.length > 3 ? slots[3] : null;
+        this.source2 = slots.length > 1 ? sources[1] : 0;
+        this.source3 = slots.length > 2 ? sources[2] : 0;
+        this.source4 = slots.length > 3 ? sources[3] : 0;
+        this.invoker = invoker;
+    }
+
+    static Object select(int slot, Object s0, Object s1, Object s2, Object s3, Object s4) {
+        switch (slot) {
+            case 0:
+                return s0;
+            case 1:
+                return s1;
+            case 2:
+                return s2;
+            case 3:
+                return s3;
+            default:
+                return s4;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        // Shared values are evaluated once in tree order and kept in locals, so no frame is allocated
+        var s1 = slot1.invoke(packed);
+        var s2 = slot2 == null ? null : slot2.invoke(select(source2, packed, s1, null, null, null));
+        var s3 = slot3 == null ? null : slot3.invoke(select(source3, packed, s1, s2, null, null));
+        var s4 = slot4 == null ? null : slot4.invoke(select(source4, packed, s1, s2, s3, null));
+        return invoker.invoke(owner, packed, s1, s2, s3, s4);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class HandleAccessor implements Function1 {
+    final MethodHandle handle;
+
+    HandleAccessor(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object o) throws Throwable {
+        return (Object) handle.invokeExact(o);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+@SuppressWarnings("rawtypes")
+final class IdentityAccessor implements Function1 {
+    static final IdentityAccessor INSTANCE = new IdentityAccessor();
+
+    private IdentityAccessor() {
+    }
+
+    @Override
+    public Object invoke(Object o) {
+        return o;
+    }
+}
@@ -2,21 +2,21 @@ package com.github.romanqed.unpackr.reflect;
 
 import com.github.romanqed.jfunc.Function1;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Array;
 
 @SuppressWarnings("rawtypes")
-final class ChainedStaticEmptyMethodAccessor implements Function1 {
+final class IndexAccessor implements Function1 {
     final Function1 previous;
-    final Method method;
+    final int index;
 
-    ChainedStaticEmptyMethodAccessor(Function1 previous, Method method) {
+    IndexAccessor(Function1 previous, int index) {
         this.previous = previous;
-        this.method = method;
+        this.index = index;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public Object invoke(Object o) throws Throwable {
-        return method.invoke(null, previous.invoke(o));
+        return Array.get(previous.invoke(o), index);
     }
 }
@@ -0,0 +1,83 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+@SuppressWarnings("rawtypes")
+final class Invokers {
+    static final int MAX_ARITY = 8;
+
+    private Invokers() {
+    }
+
+    private static MethodHandle of(Method method) {
+        MethodHandle ret;
+        try {
+            // Method is already accessible, so no access checks are performed
+            ret = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot unreflect target method: " + method, e);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            ret = MethodHandles.dropArguments(ret, 0, Object.class);
+        }
+        return ret.asType(MethodType.genericMethodType(method.getParameterCount() + 1));
+    }
+
+    static Function2 of(Method method, Function1[] accessors) {
+        if (accessors.length > MAX_ARITY) {
+            return new UnpackMethodInvoker(method, accessors);
+        }
+        var handle = of(method);
+        switch (accessors.length) {
+            case 0:
+                return new UnpackMethodInvoker0(handle);
+            case 1:
+                return new UnpackMethodInvoker1(handle, accessors);
+            case 2:
+                return new UnpackMethodInvoker2(handle, accessors);
+            case 3:
+                return new UnpackMethodInvoker3(handle, accessors);
+            case 4:
+                return new UnpackMethodInvoker4(handle, accessors);
+            case 5:
+                return new UnpackMethodInvoker5(handle, accessors);
+            case 6:
+                return new UnpackMethodInvoker6(handle, accessors);
+            case 7:
+                return new UnpackMethodInvoker7(handle, accessors);
+            default:
+                return new UnpackMethodInvoker8(handle, accessors);
+        }
+    }
+
+    static FrameInvoker of(Method method, Function1[] accessors, int[] sources) {
+        var handle = of(method);
+        switch (accessors.length) {
+            case 1:
+                return new FrameInvoker1(handle, accessors, sources);
+            case 2:
+                return new FrameInvoker2(handle, accessors, sources);
+            case 3:
+                return new FrameInvoker3(handle, accessors, sources);
+            case 4:
+                return new FrameInvoker4(handle, accessors, sources);
+            case 5:
+                return new FrameInvoker5(handle, accessors, sources);
+            case 6:
+                return new FrameInvoker6(handle, accessors, sources);
+            case 7:
+                return new FrameInvoker7(handle, accessors, sources);
+            case 8:
+                return new FrameInvoker8(handle, accessors, sources);
+            default:
+                throw new IllegalArgumentException("Unsupported arity: " + accessors.length);
+        }
+    }
+}
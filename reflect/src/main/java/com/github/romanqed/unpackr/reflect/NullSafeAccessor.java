@@ -0,0 +1,21 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+@SuppressWarnings("rawtypes")
+final class NullSafeAccessor implements Function1 {
+    final Function1 previous;
+    final Function1 step;
+
+    NullSafeAccessor(Function1 previous, Function1 step) {
+        this.previous = previous;
+        this.step = step;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        var value = previous.invoke(o);
+        return value == null ? null : step.invoke(value);
+    }
+}
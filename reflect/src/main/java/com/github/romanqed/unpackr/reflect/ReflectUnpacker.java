@@ -3,12 +3,18 @@ package com.github.romanqed.unpackr.reflect;
 import com.github.romanqed.jeflect.cloner.ReflectCloner;
 import com.github.romanqed.jfunc.Function1;
 import com.github.romanqed.jfunc.Function2;
+import com.github.romanqed.unpackr.CastAccess;
 import com.github.romanqed.unpackr.FieldAccess;
+import com.github.romanqed.unpackr.IndexAccess;
 import com.github.romanqed.unpackr.MemberAccess;
 import com.github.romanqed.unpackr.MethodAccess;
+import com.github.romanqed.unpackr.NullSafeAccess;
 import com.github.romanqed.unpackr.Unpacker;
+import com.github.romanqed.unpackr.WriteAccess;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -17,6 +23,12 @@ import java.util.Objects;
  * <p>
  * This implementation processes chains of {@link com.github.romanqed.unpackr.MemberAccess} to construct accessors
  * that traverse the input object structure and extract parameters for method invocation.
+ * Access chains are merged into a prefix tree, so a member shared by several chains is accessed
+ * only once per invocation, and its result is reused by all of them.
+ * Shared results are kept in locals, so an invocation allocates nothing itself, unless the target method
+ * has more than 8 parameters or more than 4 shared results are needed, which are then passed in arrays.
+ * Each remaining step is run by an accessor specialized for its kind of member,
+ * see {@link #withFlatChains()} for the alternative.
  * The target method and all members used in access chains are cloned and made accessible using {@link ReflectCloner}.
  *
  * <h3>Usage Example</h3>
@@ -51,6 +63,35 @@ import java.util.Objects;
 @SuppressWarnings("rawtypes")
 public final class ReflectUnpacker implements Unpacker {
     private final ReflectCloner cloner;
+    private final boolean handles;
+    private final boolean flat;
+
+    private ReflectUnpacker(ReflectCloner cloner, boolean handles, boolean flat) {
+        this.cloner = cloner;
+        this.handles = handles;
+        this.flat = flat;
+    }
+
+    /**
+     * Constructs a new {@code ReflectUnpacker} with the specified {@link ReflectCloner}
+     * and the specified access mode.
+     * <p>
+     * If {@code handles} is {@code true}, every cloned member of access chains is unreflected into
+     * a {@link java.lang.invoke.MethodHandle} with constant arguments already bound and invoked exactly,
+     * so the steps skip the access checks, argument arrays and varargs handling of
+     * {@link java.lang.reflect.Method#invoke(Object, Object...)}. No classes are defined in either mode.
+     * <p>
+     * Handles are held in instance fields, which the JIT does not treat as constants, so every step
+     * is still an indirect handle call. It is inlined only if the unpacker itself is a constant,
+     * e.g. stored in a {@code static final} field. Use {@code AsmUnpacker} for calls compiled into bytecode.
+     *
+     * @param cloner  the cloner used to safely clone and prepare reflective members, must not be {@code null}
+     * @param handles {@code true} to access members through method handles,
+     *                {@code false} to use {@link java.lang.reflect.Method} and {@link java.lang.reflect.Field}
+     */
+    public ReflectUnpacker(ReflectCloner cloner, boolean handles) {
+        this(Objects.requireNonNull(cloner), handles, false);
+    }
 
     /**
      * Constructs a new {@code ReflectUnpacker} with the specified {@link ReflectCloner}.
@@ -63,16 +104,42 @@ public final class ReflectUnpacker implements Unpacker {
      * @param cloner the cloner used to safely clone and prepare reflective members, must not be {@code null}
      */
     public ReflectUnpacker(ReflectCloner cloner) {
-        this.cloner = Objects.requireNonNull(cloner);
+        this(cloner, false);
+    }
+
+    /**
+     * Returns a copy of this unpacker that runs the reflective steps of each unshared chain
+     * in a single accessor, which walks an array of step descriptors in one loop.
+     * <p>
+     * By default, every step is a separate accessor specialized for its kind of member, so the JIT
+     * sees a monomorphic call at each step of a hot chain. Flat chains share one accessor class and one loop
+     * between all chains instead, which keeps the type profiles of many distinct or rarely invoked
+     * unpackers from being polluted, but makes a single hot chain slower.
+     * Has no effect on steps accessed through method handles, since a handle cannot be invoked exactly
+     * from an array of step descriptors.
+     *
+     * @return a new {@code ReflectUnpacker} that flattens access chains
+     */
+    public ReflectUnpacker withFlatChains() {
+        return new ReflectUnpacker(cloner, handles, true);
     }
 
     private Function1 process(FieldAccess access, Function1 previous) {
         var cloned = cloner.clone(access.member());
+        // Accessible members skip the caller check, which allocates on every call
+        cloned.trySetAccessible();
+        if (handles) {
+            return Accessors.ofHandle(previous, cloned);
+        }
         return Accessors.of(previous, cloned);
     }
 
     private Function1 process(MethodAccess access, Function1 previous) {
         var cloned = cloner.clone(access.member());
+        cloned.trySetAccessible();
+        if (handles) {
+            return Accessors.ofHandle(previous, cloned, access.arguments());
+        }
         return Accessors.of(previous, cloned, access.arguments());
     }
 
@@ -80,39 +147,186 @@ public final class ReflectUnpacker implements Unpacker {
         if (access.getClass() == FieldAccess.class) {
             return process((FieldAccess) access, previous);
         }
+        if (access.getClass() == IndexAccess.class) {
+            var index = (IndexAccess) access;
+            if (handles) {
+                return Accessors.ofHandle(previous, index.type(), index.index());
+            }
+            return Accessors.of(previous, index.index());
+        }
+        if (access.getClass() == CastAccess.class) {
+            // Casts are checked the same way in both modes
+            return Accessors.of(previous, ((CastAccess) access).type());
+        }
         return process((MethodAccess) access, previous);
     }
 
-    private Function1 process(MemberAccess[] accesses) {
-        var ret = (Function1) null;
-        for (var access : accesses) {
-            ret = process(access, ret);
+    private Function1 flatten(MemberAccess access, Function1 previous, boolean nullSafe) {
+        if (access.getClass() == FieldAccess.class) {
+            var cloned = cloner.clone(((FieldAccess) access).member());
+            cloned.trySetAccessible();
+            return Accessors.flat(previous, nullSafe, cloned);
         }
-        return ret;
+        if (access.getClass() == IndexAccess.class) {
+            return Accessors.flat(previous, nullSafe, ((IndexAccess) access).index());
+        }
+        if (access.getClass() == CastAccess.class) {
+            return Accessors.flat(previous, nullSafe, ((CastAccess) access).type());
+        }
+        var method = (MethodAccess) access;
+        var cloned = cloner.clone(method.member());
+        cloned.trySetAccessible();
+        return Accessors.flat(previous, nullSafe, cloned, method.arguments());
     }
 
-    private Function1[] process(MemberAccess[][] accesses, Method target, Class<?> packed) {
-        var ret = new Function1[accesses.length];
+    private Function1 process(MemberAccess access, Function1 previous, boolean nullSafe) {
+        if (flat && !handles) {
+            // Null-safe flat chains check the value before each step
+            return flatten(access, previous, nullSafe);
+        }
+        if (!nullSafe) {
+            return process(access, previous);
+        }
+        // The step is not chained, so the value can be checked before it is accessed
+        var step = process(access, null);
+        return new NullSafeAccessor(previous == null ? IdentityAccessor.INSTANCE : previous, step);
+    }
+
+    private static Node of(MemberAccess[][] accesses, Method target, Class<?> packed) {
+        var ret = new Node(null);
         var parameters = target.getParameterTypes();
-        for (var i = 0; i < accesses.length; i++) {
+        for (var i = 0; i < accesses.length; ++i) {
             var access = accesses[i];
-            if (access != null) {
-                ret[i] = process(accesses[i]);
+            if (access == null) {
+                if (packed != parameters[i]) {
+                    throw new IllegalArgumentException("Mismatched types: " + parameters[i] + ", " + packed);
+                }
                 continue;
             }
-            if (packed != parameters[i]) {
-                throw new IllegalArgumentException("Mismatched types: " + parameters[i] + ", " + packed);
+            if (WriteAccess.find(access) != null) {
+                throw new IllegalArgumentException("Write chains can only be used by a packer: " + i);
             }
+            var node = ret;
+            var length = access.length;
+            if (NullSafeAccess.find(access) != null) {
+                node = ret.safe();
+                --length;
+            }
+            for (var j = 0; j < length; ++j) {
+                var element = access[j];
+                var found = node.find(element);
+                if (found == null) {
+                    found = new Node(element);
+                    node.attach(element, found);
+                }
+                node = found;
+            }
+            node.addIndex(i);
         }
         return ret;
     }
 
+    private void collect(Node node,
+                         Function1 previous,
+                         int source,
+                         Frame frame,
+                         boolean nullSafe) {
+        if (node.indexes != null) {
+            for (var index : node.indexes) {
+                frame.accessors[index] = previous;
+                frame.sources[index] = source;
+            }
+        }
+        if (node.children == null) {
+            return;
+        }
+        for (var child : node.children.values()) {
+            var accessor = process(child.access, previous, nullSafe);
+            if (child.uses() < 2) {
+                collect(child, accessor, source, frame, nullSafe);
+                continue;
+            }
+            // Value is consumed more than once, so it is evaluated into its own slot
+            frame.slots.add(accessor);
+            frame.slotSources.add(source);
+            collect(child, null, frame.slots.size(), frame, nullSafe);
+        }
+    }
+
+    private void collect(Node root, Frame frame) {
+        collect(root, null, 0, frame, false);
+        if (root.safe != null) {
+            collect(root.safe, null, 0, frame, true);
+        }
+    }
+
+    private static void fill(Function1[] accessors, Function1 packed) {
+        for (var i = 0; i < accessors.length; ++i) {
+            if (accessors[i] == null) {
+                accessors[i] = packed;
+            }
+        }
+    }
+
+    private static void fill(Function1[] accessors, Method target, MemberAccess[][] accesses) {
+        var parameters = target.getParameterTypes();
+        for (var i = 0; i < accessors.length; ++i) {
+            var marker = NullSafeAccess.find(accesses[i]);
+            if (marker != null) {
+                accessors[i] = new DefaultAccessor(accessors[i], marker.value(parameters[i]));
+            }
+        }
+    }
+
+    private static Function2 of(Method target, Frame frame) {
+        var accessors = frame.accessors;
+        var slots = frame.slots;
+        if (slots.isEmpty()) {
+            return Invokers.of(target, accessors);
+        }
+        var sources = new int[slots.size()];
+        for (var i = 0; i < sources.length; ++i) {
+            sources[i] = frame.slotSources.get(i);
+        }
+        if (slots.size() <= FrameUnpackMethodInvoker.MAX_SLOTS && accessors.length <= Invokers.MAX_ARITY) {
+            var invoker = Invokers.of(target, accessors, frame.sources);
+            return new FrameUnpackMethodInvoker(slots.toArray(new Function1[0]), sources, invoker);
+        }
+        // Values are read from the frame array by slot
+        var frameSlots = new Function1[slots.size()];
+        for (var i = 0; i < frameSlots.length; ++i) {
+            frameSlots[i] = new SlotAccessor(sources[i], slots.get(i));
+        }
+        var frameAccessors = new Function1[accessors.length];
+        for (var i = 0; i < frameAccessors.length; ++i) {
+            frameAccessors[i] = new SlotAccessor(frame.sources[i], accessors[i]);
+        }
+        return new ArrayFrameUnpackMethodInvoker(frameSlots, Invokers.of(target, frameAccessors));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
-        var accessors = process(accesses, target, packed);
+        var root = of(accesses, target, packed);
         var cloned = cloner.clone(target);
         cloned.setAccessible(true);
-        return new UnpackMethodInvoker(cloned, accessors);
+        var frame = new Frame(accesses.length);
+        collect(root, frame);
+        fill(frame.accessors, IdentityAccessor.INSTANCE);
+        fill(frame.accessors, target, accesses);
+        return of(cloned, frame);
+    }
+
+    private static final class Frame {
+        final List<Function1> slots = new ArrayList<>();
+        // Slot each shared value is evaluated from, 0 is the packed object
+        final List<Integer> slotSources = new ArrayList<>();
+        final Function1[] accessors;
+        final int[] sources;
+
+        private Frame(int count) {
+            this.accessors = new Function1[count];
+            this.sources = new int[count];
+        }
     }
 }
@@ -0,0 +1,20 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+
+@SuppressWarnings("rawtypes")
+final class SlotAccessor implements Function1 {
+    final int slot;
+    final Function1 next;
+
+    SlotAccessor(int slot, Function1 next) {
+        this.slot = slot;
+        this.next = next;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object o) throws Throwable {
+        return next.invoke(((Object[]) o)[slot]);
+    }
+}
@@ -20,12 +20,7 @@ final class UnpackMethodInvoker implements Function2 {
     public Object invoke(Object owner, Object packed) throws Throwable {
         var arguments = new Object[accessors.length];
         for (var i = 0; i < accessors.length; ++i) {
-            var accessor = accessors[i];
-            if (accessor == null) {
-                arguments[i] = packed;
-            } else {
-                arguments[i] = accessor.invoke(packed);
-            }
+            arguments[i] = accessors[i].invoke(packed);
         }
         return method.invoke(owner, arguments);
     }
@@ -0,0 +1,19 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class UnpackMethodInvoker0 implements Function2 {
+    final MethodHandle handle;
+
+    UnpackMethodInvoker0(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        return (Object) handle.invokeExact(owner);
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class UnpackMethodInvoker1 implements Function2 {
+    final MethodHandle handle;
+    final Function1 accessor0;
+
+    UnpackMethodInvoker1(MethodHandle handle, Function1[] accessors) {
+        this.handle = handle;
+        this.accessor0 = accessors[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        return (Object) handle.invokeExact(
+                owner,
+                accessor0.invoke(packed)
+        );
+    }
+}
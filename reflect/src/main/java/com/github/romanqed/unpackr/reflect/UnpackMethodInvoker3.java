@@ -0,0 +1,32 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class UnpackMethodInvoker3 implements Function2 {
+    final MethodHandle handle;
+    final Function1 accessor0;
+    final Function1 accessor1;
+    final Function1 accessor2;
+
+    UnpackMethodInvoker3(MethodHandle handle, Function1[] accessors) {
+        this.handle = handle;
+        this.accessor0 = accessors[0];
+        this.accessor1 = accessors[1];
+        this.accessor2 = accessors[2];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        return (Object) handle.invokeExact(
+                owner,
+                accessor0.invoke(packed),
+                accessor1.invoke(packed),
+                accessor2.invoke(packed)
+        );
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.romanqed.unpackr.reflect;
+
+import com.github.romanqed.jfunc.Function1;
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.invoke.MethodHandle;
+
+@SuppressWarnings("rawtypes")
+final class UnpackMethodInvoker7 implements Function2 {
+    final MethodHandle handle;
+    final Function1 accessor0;
+    final Function1 accessor1;
+    final Function1 accessor2;
+    final Function1 accessor3;
+    final Function1 accessor4;
+    final Function1 accessor5;
+    final Function1 accessor6;
+
+    UnpackMethodInvoker7(MethodHandle handle, Function1[] accessors) {
+        this.handle = handle;
+        this.accessor0 = accessors[0];
+        this.accessor1 = accessors[1];
+        this.accessor2 = accessors[2];
+        this.accessor3 = accessors[3];
+        this.accessor4 = accessors[4];
+        this.accessor5 = accessors[5];
+        this.accessor6 = accessors[6];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object owner, Object packed) throws Throwable {
+        return (Object) handle.invokeExact(
+                owner,
+                accessor0.invoke(packed),
+                accessor1.invoke(packed),
+                accessor2.invoke(packed),
+                accessor3.invoke(packed),
+                accessor4.invoke(packed),
+                accessor5.invoke(packed),
+                accessor6.invoke(packed)
+        );
+    }
+}
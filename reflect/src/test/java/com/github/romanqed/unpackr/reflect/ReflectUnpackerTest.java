@@ -4,10 +4,14 @@ import com.github.romanqed.jeflect.cloner.NoopReflectCloner;
 import com.github.romanqed.unpackr.MemberAccess;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class ReflectUnpackerTest {
 
@@ -60,6 +64,451 @@ public final class ReflectUnpackerTest {
         assertEquals("handled", func.invoke(null, new CtxImpl()));
     }
 
+    public static String handleShared(String aProp1, String aProp2, String again) {
+        return aProp1 + aProp2 + again;
+    }
+
+    @Test
+    public void testSharedPrefix() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var aProp2 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp2")
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner());
+        var target = ReflectUnpackerTest.class.getMethod("handleShared", String.class, String.class, String.class);
+        var func = unpacker.unpack(Ctx.class, target, aProp1, aProp2, aProp1);
+        var counter = new int[1];
+        var ctx = new Ctx() {
+            @Override
+            public A getA() {
+                ++counter[0];
+                return new CtxImpl().getA();
+            }
+
+            @Override
+            public B getB() {
+                return new CtxImpl().getB();
+            }
+        };
+        assertEquals("ValueOfAProp1ValueOfAProp2ValueOfAProp1", func.invoke(null, ctx));
+        assertEquals(1, counter[0]);
+    }
+
+    public static int sum(Ctx ctx, String a, String b, String c, String d, String e, String f, String g, String h) {
+        assertNotNull(ctx);
+        return a.length() + b.length() + c.length() + d.length() + e.length() + f.length() + g.length() + h.length();
+    }
+
+    @Test
+    public void testManyParameters() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner());
+        var parameters = new Class<?>[9];
+        Arrays.fill(parameters, String.class);
+        parameters[0] = Ctx.class;
+        var target = ReflectUnpackerTest.class.getMethod("sum", parameters);
+        var func = unpacker.unpack(Ctx.class, target, null, aProp1, aProp1, aProp1, aProp1, aProp1, aProp1, aProp1, aProp1);
+        assertEquals(8 * "ValueOfAProp1".length(), func.invoke(null, new CtxImpl()));
+    }
+
+    public static String arity0() {
+        return "";
+    }
+
+    public static String arity1(long a) {
+        return "" + a;
+    }
+
+    public static String arity2(long a, long b) {
+        return a + ":" + b;
+    }
+
+    public static String arity3(long a, long b, long c) {
+        return a + ":" + b + ":" + c;
+    }
+
+    public static String arity4(long a, long b, long c, long d) {
+        return a + ":" + b + ":" + c + ":" + d;
+    }
+
+    public static String arity5(long a, long b, long c, long d, long e) {
+        return a + ":" + b + ":" + c + ":" + d + ":" + e;
+    }
+
+    public static String arity6(long a, long b, long c, long d, long e, long f) {
+        return a + ":" + b + ":" + c + ":" + d + ":" + e + ":" + f;
+    }
+
+    public static String arity7(long a, long b, long c, long d, long e, long f, long g) {
+        return a + ":" + b + ":" + c + ":" + d + ":" + e + ":" + f + ":" + g;
+    }
+
+    public static String arity8(long a, long b, long c, long d, long e, long f, long g, long h) {
+        return a + ":" + b + ":" + c + ":" + d + ":" + e + ":" + f + ":" + g + ":" + h;
+    }
+
+    @Test
+    public void testArities() throws Throwable {
+        var numbers = new long[]{10, 11, 12, 13, 14, 15, 16, 17};
+        var payload = new Payload(numbers, null, null, null);
+        for (var arity = 0; arity <= Invokers.MAX_ARITY; ++arity) {
+            var parameters = new Class<?>[arity];
+            Arrays.fill(parameters, long.class);
+            var target = ReflectUnpackerTest.class.getMethod("arity" + arity, parameters);
+            var accesses = new MemberAccess[arity][];
+            var expected = new StringJoiner(":");
+            for (var i = 0; i < arity; ++i) {
+                accesses[i] = MemberAccess.of()
+                        .of(Payload.class)
+                        .of(Payload.class.getField("numbers"))
+                        .index(i)
+                        .build();
+                expected.add(Long.toString(numbers[i]));
+            }
+            // Arities up to MAX_ARITY have their own invokers, shared array field is kept in a local of the frame
+            var name = (arity > 1 ? FrameInvoker.class : UnpackMethodInvoker.class).getName();
+            for (var handles : new boolean[]{false, true}) {
+                var unpacker = new ReflectUnpacker(new NoopReflectCloner(), handles);
+                var func = unpacker.unpack(Payload.class, target, accesses);
+                var invoker = func instanceof FrameUnpackMethodInvoker ? ((FrameUnpackMethodInvoker) func).invoker : func;
+                assertEquals(Class.forName(name + arity), invoker.getClass());
+                assertEquals(expected.toString(), func.invoke(null, payload));
+            }
+        }
+    }
+
+    public static String levels(String first, String second, String third, String fourth, int size) {
+        return first + second + third + fourth + size;
+    }
+
+    public static String levels(String first, String second, String third, String fourth, String fifth, int size) {
+        return first + second + third + fourth + fifth + size;
+    }
+
+    private static MemberAccess[] level(int depth, String field) throws Exception {
+        var builder = MemberAccess.of().of(Box.class);
+        for (var i = 0; i < depth; ++i) {
+            builder.of(Box.class.getMethod("next", Box.class));
+        }
+        return builder.of(Box.class.getField(field)).build();
+    }
+
+    @Test
+    public void testFrameSlots() throws Throwable {
+        // Every level is used by its value and by the next level, so each one takes a slot
+        var box = new Box("a", 0, new Box("b", 1, new Box("c", 2, new Box("d", 3, new Box("e", 4,
+                new Box("f", 5, null))))));
+        var four = ReflectUnpackerTest.class.getMethod(
+                "levels", String.class, String.class, String.class, String.class, int.class
+        );
+        var five = ReflectUnpackerTest.class.getMethod(
+                "levels", String.class, String.class, String.class, String.class, String.class, int.class
+        );
+        for (var handles : new boolean[]{false, true}) {
+            var unpacker = new ReflectUnpacker(new NoopReflectCloner(), handles);
+            var inLocals = unpacker.unpack(Box.class, four,
+                    level(1, "value"), level(2, "value"), level(3, "value"), level(4, "value"), level(4, "size"));
+            assertEquals(FrameUnpackMethodInvoker.class, inLocals.getClass());
+            assertEquals("bcde4", inLocals.invoke(null, box));
+            // More slots than locals fall back to a frame array
+            var inArray = unpacker.unpack(Box.class, five,
+                    level(1, "value"), level(2, "value"), level(3, "value"),
+                    level(4, "value"), level(5, "value"), level(5, "size"));
+            assertEquals(ArrayFrameUnpackMethodInvoker.class, inArray.getClass());
+            assertEquals("bcdef5", inArray.invoke(null, box));
+        }
+    }
+
+    public static String join(String aProp1, String aProp3, String bProp1) {
+        return aProp1 + aProp3 + bProp1;
+    }
+
+    public static int sizes(int a, int b) {
+        return a + b;
+    }
+
+    @Test
+    public void testNullSafe() throws Throwable {
+        var aProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .nullSafe("none")
+                .build();
+        var aProp3 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp3")
+                .nullSafe("none")
+                .build();
+        var bProp1 = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("get", Object.class), "bProp1")
+                .nullSafe()
+                .build();
+        var aSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe()
+                .build();
+        var bSize = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getB"))
+                .of(B.class.getMethod("getBProps"))
+                .of(Map.class.getMethod("size"))
+                .nullSafe(5)
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner());
+        var join = ReflectUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        var sum = ReflectUnpackerTest.class.getMethod("sizes", int.class, int.class);
+        var joinFunc = unpacker.unpack(Ctx.class, join, aProp1, aProp3, bProp1);
+        var sumFunc = unpacker.unpack(Ctx.class, sum, aSize, bSize);
+        var missing = new Ctx() {
+            @Override
+            public A getA() {
+                return new CtxImpl().getA();
+            }
+
+            @Override
+            public B getB() {
+                return null;
+            }
+        };
+        assertEquals("ValueOfAProp1noneValueOfBProp1", joinFunc.invoke(null, new CtxImpl()));
+        assertEquals("ValueOfAProp1nonenull", joinFunc.invoke(null, missing));
+        assertEquals("nonenonenull", joinFunc.invoke(null, null));
+        assertEquals(4, sumFunc.invoke(null, new CtxImpl()));
+        assertEquals(7, sumFunc.invoke(null, missing));
+        assertEquals(5, sumFunc.invoke(null, null));
+    }
+
+    @Test
+    public void testWriteChain() throws Throwable {
+        var write = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .set(Map.class.getMethod("put", Object.class, Object.class), "aProp1")
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner());
+        var join = ReflectUnpackerTest.class.getMethod("join", String.class, String.class, String.class);
+        assertThrows(IllegalArgumentException.class, () -> unpacker.unpack(Ctx.class, join, write, write, write));
+    }
+
+    public static String cast(int length, String upper) {
+        return length + upper;
+    }
+
+    @Test
+    public void testCast() throws Throwable {
+        // Interface method is inherited by the root type, map value is cast to its actual type
+        var length = MemberAccess.of()
+                .of(CtxImpl.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("length"))
+                .build();
+        var upper = MemberAccess.of()
+                .of(CtxImpl.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "aProp1")
+                .cast(String.class)
+                .of(String.class.getMethod("toUpperCase"))
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner());
+        var target = ReflectUnpackerTest.class.getMethod("cast", int.class, String.class);
+        var func = unpacker.unpack(CtxImpl.class, target, length, upper);
+        assertEquals("13VALUEOFAPROP1", func.invoke(null, new CtxImpl()));
+    }
+
+    public static String elements(long first, long extra, Object value, String attachment) {
+        return first + ":" + extra + ":" + value + ":" + attachment;
+    }
+
+    @Test
+    public void testIndex() throws Throwable {
+        var first = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("numbers"))
+                .index(0)
+                .build();
+        var extra = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("extra"))
+                .index(1)
+                .nullSafe(-1L)
+                .build();
+        var value = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("values"))
+                .index(1)
+                .build();
+        var attachment = MemberAccess.of()
+                .of(Payload.class)
+                .of(Payload.class.getField("attachments"))
+                .index(0)
+                .build();
+        var target = ReflectUnpackerTest.class.getMethod("elements", long.class, long.class, Object.class, String.class);
+        var payload = new Payload(new long[]{5}, null, new Object[]{"a", "b"}, List.of("x"));
+        for (var handles : new boolean[]{false, true}) {
+            var unpacker = new ReflectUnpacker(new NoopReflectCloner(), handles);
+            var func = unpacker.unpack(Payload.class, target, first, extra, value, attachment);
+            assertEquals("5:-1:b:x", func.invoke(null, payload));
+        }
+    }
+
+    public static String describe(String value, int size, String prefixed, int nextSize) {
+        return value + size + prefixed + nextSize;
+    }
+
+    @Test
+    public void testHandles() throws Throwable {
+        var value = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getField("value"))
+                .build();
+        var size = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getField("size"))
+                .build();
+        var prefixed = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getMethod("prefix", String.class), "pre-")
+                .build();
+        var nextSize = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getMethod("next", Box.class))
+                .of(Box.class.getField("size"))
+                .nullSafe(-1)
+                .build();
+        var unpacker = new ReflectUnpacker(new NoopReflectCloner(), true);
+        var target = ReflectUnpackerTest.class.getMethod("describe", String.class, int.class, String.class, int.class);
+        var func = unpacker.unpack(Box.class, target, value, size, prefixed, nextSize);
+        var box = new Box("a", 1, new Box("b", 2, null));
+        assertEquals("a1pre-a2", func.invoke(null, box));
+        assertEquals("b2pre-b-1", func.invoke(null, Box.next(box)));
+        var sharedFunc = unpacker.unpack(Ctx.class,
+                ReflectUnpackerTest.class.getMethod("handleShared", String.class, String.class, String.class),
+                MemberAccess.of()
+                        .of(Ctx.class)
+                        .of(Ctx.class.getMethod("getA"))
+                        .of(A.class.getMethod("getAProps"))
+                        .of(Map.class.getMethod("get", Object.class), "aProp1")
+                        .build(),
+                MemberAccess.of()
+                        .of(Ctx.class)
+                        .of(Ctx.class.getMethod("getA"))
+                        .of(A.class.getMethod("getAProps"))
+                        .of(Map.class.getMethod("get", Object.class), "aProp2")
+                        .build(),
+                MemberAccess.of()
+                        .of(Ctx.class)
+                        .of(Ctx.class.getMethod("getB"))
+                        .of(B.class.getMethod("getBProps"))
+                        .of(Map.class.getMethod("get", Object.class), "bProp1")
+                        .build()
+        );
+        assertEquals("ValueOfAProp1ValueOfAProp2ValueOfBProp1", sharedFunc.invoke(null, new CtxImpl()));
+    }
+
+    @Test
+    public void testFlatChains() throws Throwable {
+        var value = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getField("value"))
+                .cast(String.class)
+                .build();
+        var size = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getField("size"))
+                .build();
+        var prefixed = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getMethod("prefix", String.class), "pre-")
+                .build();
+        var nextSize = MemberAccess.of()
+                .of(Box.class)
+                .of(Box.class.getMethod("next", Box.class))
+                .of(Box.class.getField("size"))
+                .nullSafe(-1)
+                .build();
+        var target = ReflectUnpackerTest.class.getMethod("describe", String.class, int.class, String.class, int.class);
+        var box = new Box("a", 1, new Box("b", 2, null));
+        var cloner = new NoopReflectCloner();
+        // Flat chains apply only to reflective steps, handles keep their own accessors
+        var unpackers = new ReflectUnpacker[]{
+                new ReflectUnpacker(cloner),
+                new ReflectUnpacker(cloner).withFlatChains(),
+                new ReflectUnpacker(cloner, true).withFlatChains()
+        };
+        var types = new Class<?>[]{FieldAccessor.class, ChainAccessor.class, HandleAccessor.class};
+        var safeTypes = new Class<?>[]{NullSafeAccessor.class, ChainAccessor.class, NullSafeAccessor.class};
+        for (var i = 0; i < unpackers.length; ++i) {
+            var func = unpackers[i].unpack(Box.class, target, value, size, prefixed, nextSize);
+            var invoker = (UnpackMethodInvoker4) func;
+            assertEquals(types[i], invoker.accessor1.getClass());
+            assertEquals(safeTypes[i], ((DefaultAccessor) invoker.accessor3).previous.getClass());
+            assertEquals("a1pre-a2", func.invoke(null, box));
+            assertEquals("b2pre-b-1", func.invoke(null, Box.next(box)));
+        }
+    }
+
+    public static final class Payload {
+        public final long[] numbers;
+        public final long[] extra;
+        public final Object[] values;
+        public final List<String> attachments;
+
+        public Payload(long[] numbers, long[] extra, Object[] values, List<String> attachments) {
+            this.numbers = numbers;
+            this.extra = extra;
+            this.values = values;
+            this.attachments = attachments;
+        }
+    }
+
+    public static final class Box {
+        public final String value;
+        public final int size;
+        private final Box next;
+
+        public Box(String value, int size, Box next) {
+            this.value = value;
+            this.size = size;
+            this.next = next;
+        }
+
+        public static Box next(Box box) {
+            return box.next;
+        }
+
+        public String prefix(String prefix) {
+            return prefix + value;
+        }
+    }
+
     public interface Ctx {
         static C getC(Ctx ctx) {
             return ((CtxImpl) ctx).getC();
@@ -0,0 +1,128 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An {@link Unpacker} decorator that caches created functions by their {@link UnpackSpec}.
+ * <p>
+ * Repeated calls with the same packed type, target method and access chains return the same function
+ * without invoking the underlying unpacker, while specs that differ in any chain element never share
+ * a cache entry. The cache is bounded: when its capacity is exceeded, the least recently used entry is evicted.
+ * <p>
+ * This class is thread-safe. If several threads miss the same spec at the same time, each of them may call
+ * the underlying unpacker, but all of them will receive the function that was cached first.
+ *
+ * <h3>Usage Example</h3>
+ * <pre>{@code
+ * var unpacker = new CachedUnpacker(new AsmUnpacker(new DefineClassLoader()), 1024);
+ * var first = unpacker.unpack(Ctx.class, method, rqPropsAccess);
+ * var second = unpacker.unpack(Ctx.class, method, rqPropsAccess); // same instance as first
+ * }</pre>
+ *
+ * @see Unpacker
+ * @see UnpackSpec
+ */
+@SuppressWarnings("rawtypes")
+public final class CachedUnpacker implements Unpacker {
+    private final Unpacker unpacker;
+    private final int capacity;
+    private final Map<UnpackSpec, Function2> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs a new {@code CachedUnpacker} with the specified underlying unpacker and cache capacity.
+     *
+     * @param unpacker the unpacker used to create functions on cache misses, must not be {@code null}
+     * @param capacity the maximum number of cached functions, must be positive
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public CachedUnpacker(Unpacker unpacker, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.unpacker = Objects.requireNonNull(unpacker);
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UnpackSpec, Function2> eldest) {
+                return size() > CachedUnpacker.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the maximum number of cached functions.
+     *
+     * @return the cache capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the current number of cached functions.
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of {@code unpack} calls served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of {@code unpack} calls that invoked the underlying unpacker.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Removes all cached functions. Hit and miss counters are not reset.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private synchronized Function2 get(UnpackSpec spec) {
+        var ret = cache.get(spec);
+        if (ret == null) {
+            ++misses;
+        } else {
+            ++hits;
+        }
+        return ret;
+    }
+
+    private synchronized Function2 put(UnpackSpec spec, Function2 function) {
+        var ret = cache.putIfAbsent(spec, function);
+        return ret == null ? function : ret;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+        var spec = new UnpackSpec(packed, target, accesses);
+        var ret = get(spec);
+        if (ret != null) {
+            return ret;
+        }
+        // Do not hold the lock while the underlying unpacker works
+        return put(spec, unpacker.unpack(packed, target, accesses));
+    }
+}
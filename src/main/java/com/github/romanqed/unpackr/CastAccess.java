@@ -0,0 +1,64 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Member;
+
+/**
+ * Represents a step that casts the current value of an access chain to the specified type.
+ * <p>
+ * Unpackers compile it into a single cast, so members of the actual type of a value can be accessed
+ * even if the previous member declares a wider type, e.g. the result of {@code Map.get(Object)}.
+ * A value that is not an instance of the type causes {@link ClassCastException}, and {@code null} passes as is.
+ * <p>
+ * Instances are usually appended by {@link MemberAccessBuilder#cast(Class)}.
+ */
+public final class CastAccess implements MemberAccess {
+    private final Class<?> type;
+
+    /**
+     * Constructs a new {@code CastAccess} with the specified type.
+     *
+     * @param type the type to cast to, must not be primitive
+     */
+    public CastAccess(Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the type values are cast to.
+     *
+     * @return the type
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    /**
+     * Returns {@code null}, since the cast does not access any member.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Member member() {
+        return null;
+    }
+
+    @Override
+    public void accept(MemberAccessVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+
+        var that = (CastAccess) object;
+
+        return type.equals(that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return type.hashCode();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.annotation.*;
+
+/**
+ * Binds a method parameter to a single public member of the packed object, named exactly.
+ * <p>
+ * Unlike {@link Unpack}, no getter names are inferred: exactly one of {@link #field()} or {@link #method()}
+ * must be set, and it must name a public non-static field or a public non-static no-arg method
+ * of the packed type.
+ *
+ * <pre>{@code
+ * public void handle(@From(method = "getRq") Rq rq, @From(field = "id") int id) {
+ *     ...
+ * }
+ *
+ * var function = unpacker.unpack(Ctx.class, Handler.class.getMethod("handle", Rq.class, int.class));
+ * }</pre>
+ *
+ * @see Unpackr#accesses(Class, java.lang.reflect.Method)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface From {
+
+    /**
+     * Returns the name of the field to read.
+     *
+     * @return the field name, or an empty string if a method is used
+     */
+    String field() default "";
+
+    /**
+     * Returns the name of the no-arg method to call.
+     *
+     * @return the method name, or an empty string if a field is used
+     */
+    String method() default "";
+}
@@ -0,0 +1,76 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Member;
+import java.util.Objects;
+
+/**
+ * Represents an access descriptor for an array element with a constant index.
+ * <p>
+ * Unpackers load the element directly, so elements of primitive arrays are not boxed.
+ * An index out of the array bounds causes {@link ArrayIndexOutOfBoundsException}.
+ * <p>
+ * Instances are usually appended by {@link MemberAccessBuilder#index(int)}.
+ */
+public final class IndexAccess implements MemberAccess {
+    private final Class<?> type;
+    private final int index;
+
+    /**
+     * Constructs a new {@code IndexAccess} with the specified array type and index.
+     *
+     * @param type  the array type
+     * @param index the element index, must not be negative
+     */
+    public IndexAccess(Class<?> type, int index) {
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * Returns the array type.
+     *
+     * @return the array type
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    /**
+     * Returns the element index.
+     *
+     * @return the index
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Returns {@code null}, since array elements are not members.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Member member() {
+        return null;
+    }
+
+    @Override
+    public void accept(MemberAccessVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+
+        var that = (IndexAccess) object;
+
+        return index == that.index && type.equals(that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, index);
+    }
+}
@@ -59,15 +59,62 @@ import java.util.Objects;
  * }</pre>
  * <p>
  * These access chains can be passed to an {@link Unpacker} to extract arguments for a target method.
+ * <p>
+ * If some values in the chain may be {@code null}, finish it with {@link #nullSafe(Object)}:
+ *
+ * <pre>{@code
+ *
+ * var rqParamOrEmpty = MemberAccess.of()
+ *     .of(Ctx.class)
+ *     .of(Ctx.class.getMethod("getRq"))
+ *     .of(Rq.class.getMethod("getRqProps"))
+ *     .of(Map.class.getMethod("get", Object.class), "rqParam1")
+ *     .nullSafe("")
+ *     .build();
+ * }</pre>
+ * <p>
+ * Members inherited by the current type can be added as is. To access members of the actual type
+ * of a value, add {@link #cast(Class)} first:
+ *
+ * <pre>{@code
+ *
+ * var userName = MemberAccess.of()
+ *     .of(Ctx.class)
+ *     .of(Ctx.class.getMethod("getRq"))
+ *     .of(Rq.class.getMethod("getRqProps"))
+ *     .of(Map.class.getMethod("get", Object.class), "user")
+ *     .cast(User.class)
+ *     .of(User.class.getMethod("getName"))
+ *     .build();
+ * }</pre>
+ * <p>
+ * Chains for a {@link Packer} end with a write instead, added by {@link #set(Field)}
+ * or {@link #set(Method, Object...)}:
+ *
+ * <pre>{@code
+ *
+ * var rpParamWrite = MemberAccess.of()
+ *     .of(Ctx.class)
+ *     .of(Ctx.class.getMethod("getRp"))
+ *     .of(Rp.class.getMethod("getRpProps"))
+ *     .set(Map.class.getMethod("put", Object.class, Object.class), "rpParam1")
+ *     .build();
+ * }</pre>
  *
  * @see MemberAccess
  * @see FieldAccess
  * @see MethodAccess
+ * @see NullSafeAccess
+ * @see CastAccess
+ * @see IndexAccess
+ * @see WriteAccess
  * @see Unpacker
+ * @see Packer
  */
 public final class MemberAccessBuilder {
     private final List<MemberAccess> accesses;
     private Class<?> last;
+    private boolean terminated;
 
     /**
      * Constructs a new, empty {@code MemberAccessBuilder}.
@@ -76,11 +123,18 @@ public final class MemberAccessBuilder {
         this.accesses = new ArrayList<>();
     }
 
+    private void checkOwner(Class<?> owner) {
+        // Inherited members are accessed directly on the subtype
+        if (!owner.isAssignableFrom(last)) {
+            throw new IllegalArgumentException(
+                    "Declaring class of member must be " + last.getSimpleName() + " or its supertype"
+            );
+        }
+    }
+
     private void checkField(Field field) {
         Objects.requireNonNull(field);
-        if (last != field.getDeclaringClass()) {
-            throw new IllegalArgumentException("Declaring class of member must be " + last.getSimpleName());
-        }
+        checkOwner(field.getDeclaringClass());
     }
 
     private void checkMethod(Method method) {
@@ -99,8 +153,8 @@ public final class MemberAccessBuilder {
                         "First parameter of static method must be superclass or interface of previous type"
                 );
             }
-        } else if (last != method.getDeclaringClass()) {
-            throw new IllegalArgumentException("Declaring class of member must be " + last.getSimpleName());
+        } else {
+            checkOwner(method.getDeclaringClass());
         }
     }
 
@@ -110,6 +164,13 @@ public final class MemberAccessBuilder {
         }
     }
 
+    private void checkOpen() {
+        checkLast();
+        if (terminated) {
+            throw new IllegalStateException("Null-safe access or write must be the last one in chain");
+        }
+    }
+
     /**
      * Sets a root type of access chain.
      *
@@ -128,6 +189,62 @@ public final class MemberAccessBuilder {
         return this;
     }
 
+    /**
+     * Adds an element with a constant index to the access chain.
+     * Array elements are accessed by {@link IndexAccess}, lists by {@link java.util.List#get(int)}.
+     * The element type becomes the expected declaring class for the next member.
+     *
+     * @param index the element index
+     * @return this builder instance for method chaining
+     * @throws IllegalArgumentException if the index is negative, or the current type is neither an array nor a list
+     */
+    public MemberAccessBuilder index(int index) {
+        checkOpen();
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must be non-negative: " + index);
+        }
+        if (last.isArray()) {
+            accesses.add(new IndexAccess(last, index));
+            last = last.getComponentType();
+            return this;
+        }
+        if (!List.class.isAssignableFrom(last)) {
+            throw new IllegalArgumentException("Cannot index " + last.getSimpleName() + ", array or list expected");
+        }
+        accesses.add(new MethodAccess(PathResolver.LIST_GET, new Object[]{index}));
+        last = Object.class;
+        return this;
+    }
+
+    /**
+     * Adds a cast to the access chain.
+     * The specified type becomes the expected declaring class for the next member.
+     *
+     * @param type the type to cast the current value to
+     * @return this builder instance for method chaining
+     * @throws NullPointerException     if the type is null
+     * @throws IllegalArgumentException if the type is primitive, or no value of the current type can be cast to it
+     * @see CastAccess
+     */
+    public MemberAccessBuilder cast(Class<?> type) {
+        checkOpen();
+        Objects.requireNonNull(type);
+        if (type.isPrimitive() || last.isPrimitive()) {
+            throw new IllegalArgumentException("Cannot cast primitive values");
+        }
+        // Unrelated classes have no common instances, unlike an interface and a non-final class
+        var related = type.isAssignableFrom(last)
+                || last.isAssignableFrom(type)
+                || (type.isInterface() && !Modifier.isFinal(last.getModifiers()))
+                || (last.isInterface() && !Modifier.isFinal(type.getModifiers()));
+        if (!related) {
+            throw new IllegalArgumentException("Cannot cast " + last.getSimpleName() + " to " + type.getSimpleName());
+        }
+        last = type;
+        accesses.add(new CastAccess(type));
+        return this;
+    }
+
     /**
      * Adds a non-static {@link Field} to the access chain.
      * The field's type becomes the expected declaring class for the next member.
@@ -135,10 +252,10 @@ public final class MemberAccessBuilder {
      * @param field the field to add
      * @return this builder instance for method chaining
      * @throws NullPointerException     if the field is null
-     * @throws IllegalArgumentException if the field is static or does not belong to the expected class
+     * @throws IllegalArgumentException if the field is static or is not declared in the expected class or its supertype
      */
     public MemberAccessBuilder of(Field field) {
-        checkLast();
+        checkOpen();
         checkField(field);
         if (Modifier.isStatic(field.getModifiers())) {
             throw new IllegalArgumentException("Fields must be non-static");
@@ -157,10 +274,10 @@ public final class MemberAccessBuilder {
      * @return this builder instance for method chaining
      * @throws NullPointerException     if the method is null
      * @throws IllegalArgumentException if argument count doesn't match the method's parameters,
-     *                                  or the method does not belong to the expected class
+     *                                  or the method is not declared in the expected class or its supertype
      */
     public MemberAccessBuilder of(Method method, Object... arguments) {
-        checkLast();
+        checkOpen();
         checkMethod(method);
         if (arguments != null && arguments.length != method.getParameterCount()) {
             throw new IllegalArgumentException(
@@ -178,12 +295,110 @@ public final class MemberAccessBuilder {
      * @param method the method to add
      * @return this builder instance for method chaining
      * @throws NullPointerException     if the method is null
-     * @throws IllegalArgumentException if the method does not belong to the expected class
+     * @throws IllegalArgumentException if the method is not declared in the expected class or its supertype
      */
     public MemberAccessBuilder of(Method method) {
         return of(method, (Object[]) null);
     }
 
+    /**
+     * Makes the access chain null-safe with the specified default value.
+     * If any value in the chain is {@code null}, the default value is passed instead.
+     * No members can be added after this call.
+     *
+     * @param value the default value, or {@code null} to use {@code null} or zero for primitive parameters
+     * @return this builder instance for method chaining
+     * @throws IllegalStateException if the root type is not specified or the chain is already terminated
+     * @see NullSafeAccess
+     */
+    public MemberAccessBuilder nullSafe(Object value) {
+        checkOpen();
+        terminated = true;
+        accesses.add(new NullSafeAccess(value));
+        return this;
+    }
+
+    /**
+     * Makes the access chain null-safe, passing {@code null} or zero for primitive parameters
+     * if any value in the chain is {@code null}.
+     *
+     * @return this builder instance for method chaining
+     * @throws IllegalStateException if the root type is not specified or the chain is already terminated
+     */
+    public MemberAccessBuilder nullSafe() {
+        return nullSafe(null);
+    }
+
+    /**
+     * Finishes the access chain with a write to the specified non-static, non-final {@link Field}.
+     * The field is followed by a {@link WriteAccess} marker, so such chains can only be used by a {@link Packer}.
+     * No members can be added after this call.
+     *
+     * @param field the field to write
+     * @return this builder instance for method chaining
+     * @throws NullPointerException     if the field is null
+     * @throws IllegalArgumentException if the field is static or final,
+     *                                  or is not declared in the expected class or its supertype
+     */
+    public MemberAccessBuilder set(Field field) {
+        checkOpen();
+        checkField(field);
+        var modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+            throw new IllegalArgumentException("Written fields must be non-static and non-final");
+        }
+        terminated = true;
+        accesses.add(new FieldAccess(field));
+        accesses.add(new WriteAccess());
+        return this;
+    }
+
+    /**
+     * Finishes the access chain with a call to the specified non-static {@link Method}, which receives
+     * the written value as its last parameter, e.g. a setter or {@link java.util.Map#put(Object, Object)}.
+     * The method is followed by a {@link WriteAccess} marker, so such chains can only be used by a {@link Packer}.
+     * No members can be added after this call.
+     *
+     * @param method    the method to call, its result is discarded
+     * @param arguments arguments to pass before the written value, or {@code null} if none
+     * @return this builder instance for method chaining
+     * @throws NullPointerException     if the method is null
+     * @throws IllegalArgumentException if the method is static, argument count doesn't match the method's
+     *                                  parameters except the last one, or the method is not declared
+     *                                  in the expected class or its supertype
+     */
+    public MemberAccessBuilder set(Method method, Object... arguments) {
+        checkOpen();
+        Objects.requireNonNull(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Write methods must be non-static");
+        }
+        checkOwner(method.getDeclaringClass());
+        var count = arguments == null ? 0 : arguments.length;
+        if (count + 1 != method.getParameterCount()) {
+            throw new IllegalArgumentException(
+                    "The length of the array of arguments does not match the number of method parameters before value"
+            );
+        }
+        terminated = true;
+        accesses.add(new MethodAccess(method, arguments));
+        accesses.add(new WriteAccess());
+        return this;
+    }
+
+    /**
+     * Finishes the access chain with a call to the specified setter, accepting only the written value.
+     *
+     * @param method the method to call
+     * @return this builder instance for method chaining
+     * @throws NullPointerException     if the method is null
+     * @throws IllegalArgumentException if the method is static, does not have exactly one parameter,
+     *                                  or is not declared in the expected class or its supertype
+     */
+    public MemberAccessBuilder set(Method method) {
+        return set(method, (Object[]) null);
+    }
+
     /**
      * Resets the builder state, clearing all previously added member accesses
      * and internal type tracking.
@@ -191,6 +406,7 @@ public final class MemberAccessBuilder {
     public void reset() {
         this.accesses.clear();
         this.last = null;
+        this.terminated = false;
     }
 
     /**
@@ -18,4 +18,44 @@ public interface MemberAccessVisitor {
      * @param method the method access to visit
      */
     void visit(MethodAccess method);
+
+    /**
+     * Visits a {@link NullSafeAccess} instance.
+     * <p>
+     * Does nothing by default, since the marker does not access any member.
+     *
+     * @param access the null-safe marker to visit
+     */
+    default void visit(NullSafeAccess access) {
+    }
+
+    /**
+     * Visits a {@link CastAccess} instance.
+     * <p>
+     * Does nothing by default, since the cast does not access any member.
+     *
+     * @param access the cast to visit
+     */
+    default void visit(CastAccess access) {
+    }
+
+    /**
+     * Visits an {@link IndexAccess} instance.
+     * <p>
+     * Does nothing by default.
+     *
+     * @param access the array element access to visit
+     */
+    default void visit(IndexAccess access) {
+    }
+
+    /**
+     * Visits a {@link WriteAccess} instance.
+     * <p>
+     * Does nothing by default, since the marker does not access any member.
+     *
+     * @param access the write marker to visit
+     */
+    default void visit(WriteAccess access) {
+    }
 }
@@ -0,0 +1,108 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Member;
+import java.util.Objects;
+
+/**
+ * Represents a marker that terminates a null-safe access chain.
+ * <p>
+ * If any value in a null-safe chain is {@code null}, including the packed object and the final value,
+ * the rest of the chain is skipped and the default value is passed to the target method instead.
+ * Unpackers compile this into a plain null check, so a missing value costs no more than a present one.
+ * Null-safe chains never share evaluated prefixes with ordinary chains, so ordinary chains keep
+ * throwing {@link NullPointerException} as before.
+ * <p>
+ * Instances are usually appended by {@link MemberAccessBuilder#nullSafe()}
+ * or {@link MemberAccessBuilder#nullSafe(Object)}.
+ */
+public final class NullSafeAccess implements MemberAccess {
+    private final Object value;
+
+    /**
+     * Constructs a new {@code NullSafeAccess} with the specified default value.
+     *
+     * @param value the default value, or {@code null} to use {@code null} or zero for primitive parameters
+     */
+    public NullSafeAccess(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * Finds the null-safe marker terminating the specified access chain.
+     *
+     * @param accesses the access chain, may be {@code null}
+     * @return the marker, or {@code null} if the chain is not null-safe
+     */
+    public static NullSafeAccess find(MemberAccess[] accesses) {
+        if (accesses == null || accesses.length == 0) {
+            return null;
+        }
+        var last = accesses[accesses.length - 1];
+        return last instanceof NullSafeAccess ? (NullSafeAccess) last : null;
+    }
+
+    /**
+     * Returns the default value as it was specified.
+     *
+     * @return the default value, or {@code null} if none
+     */
+    public Object value() {
+        return value;
+    }
+
+    /**
+     * Returns the default value for a parameter of the specified type.
+     *
+     * @param type the parameter type
+     * @return the default value, or zero of the primitive type if no default value was specified
+     * @throws IllegalArgumentException if the default value cannot be passed as the parameter of specified type
+     */
+    public Object value(Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (value != null && !type.isInstance(value)) {
+                throw new IllegalArgumentException("Default value " + value + " is not an instance of " + type);
+            }
+            return value;
+        }
+        var zero = Array.get(Array.newInstance(type, 1), 0);
+        if (value == null) {
+            return zero;
+        }
+        // Primitive parameters accept only their exact wrapper
+        if (value.getClass() != zero.getClass()) {
+            throw new IllegalArgumentException("Default value " + value + " is not a value of " + type);
+        }
+        return value;
+    }
+
+    /**
+     * Returns {@code null}, since the marker does not access any member.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Member member() {
+        return null;
+    }
+
+    @Override
+    public void accept(MemberAccessVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+
+        var that = (NullSafeAccess) object;
+
+        return Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(value);
+    }
+}
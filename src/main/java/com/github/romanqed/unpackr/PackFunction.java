@@ -0,0 +1,21 @@
+package com.github.romanqed.unpackr;
+
+/**
+ * A function that writes values into nested members of a packed object.
+ * <p>
+ * Implementations are created by {@link Packer#pack(Class, MemberAccess[][])}.
+ *
+ * @param <T> the type of the packed object
+ */
+public interface PackFunction<T> {
+
+    /**
+     * Writes values into the packed object in the order of access chains.
+     *
+     * @param packed the packed object
+     * @param values the values to write, at the same indexes as access chains;
+     *               must not be shorter than the chains
+     * @throws Throwable if any access chain or write throws
+     */
+    void invoke(T packed, Object... values) throws Throwable;
+}
@@ -0,0 +1,24 @@
+package com.github.romanqed.unpackr;
+
+/**
+ * Defines a strategy for transforming values back into an object by writing them into nested members,
+ * the inverse of an {@link Unpacker}.
+ * <p>
+ * Every access chain navigates from the packed object to the value to be modified and ends with a write
+ * and a {@link WriteAccess} marker, added by {@link MemberAccessBuilder#set(java.lang.reflect.Field)}
+ * or {@link MemberAccessBuilder#set(java.lang.reflect.Method, Object...)}.
+ */
+public interface Packer {
+
+    /**
+     * Creates a function that writes supplied values into an input object using the specified access chains.
+     * The value at index {@code i} is written by the chain at index {@code i}.
+     *
+     * @param packed   the class of the packed input object
+     * @param accesses the chains of member access, each ending with a write
+     * @param <T>      the type of the packed object
+     * @return a function that writes values into the packed object
+     * @throws IllegalArgumentException if any chain does not end with a {@link WriteAccess} marker
+     */
+    <T> PackFunction<T> pack(Class<T> packed, MemberAccess[]... accesses);
+}
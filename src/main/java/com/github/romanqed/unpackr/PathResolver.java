@@ -0,0 +1,108 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+
+final class PathResolver {
+    private static final Method MAP_GET = getMethod(Map.class, "get", Object.class);
+    static final Method LIST_GET = getMethod(List.class, "get", int.class);
+
+    private PathResolver() {
+    }
+
+    private static Method getMethod(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        Method ret;
+        try {
+            ret = type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        if (Modifier.isStatic(ret.getModifiers()) || ret.getReturnType() == void.class) {
+            return null;
+        }
+        return ret;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        Field ret;
+        try {
+            ret = type.getField(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+        return Modifier.isStatic(ret.getModifiers()) ? null : ret;
+    }
+
+    private static MemberAccess resolveName(Class<?> type, String name) {
+        if (type.isPrimitive() || type.isArray()) {
+            throw new IllegalArgumentException("Cannot resolve '" + name + "' on " + type);
+        }
+        var method = findMethod(type, name);
+        if (method != null) {
+            return new MethodAccess(method, null);
+        }
+        var capitalized = capitalize(name);
+        method = findMethod(type, "get" + capitalized);
+        if (method != null) {
+            return new MethodAccess(method, null);
+        }
+        method = findMethod(type, "is" + capitalized);
+        if (method != null) {
+            return new MethodAccess(method, null);
+        }
+        var field = findField(type, name);
+        if (field != null) {
+            return new FieldAccess(field);
+        }
+        throw new IllegalArgumentException("Cannot find public member '" + name + "' in " + type);
+    }
+
+    private static void checkType(Class<?> type, Class<?> expected, String segment) {
+        if (!expected.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(
+                    "Cannot apply " + segment + " to " + type + ", " + expected + " expected"
+            );
+        }
+    }
+
+    static MemberAccess[] resolve(Class<?> root, String path) {
+        var segments = PathParser.parse(path);
+        var ret = new MemberAccess[segments.size()];
+        var type = root;
+        for (var i = 0; i < ret.length; ++i) {
+            var segment = segments.get(i);
+            if (segment.kind == Segment.NAME) {
+                ret[i] = resolveName(type, segment.value);
+            } else if (segment.kind == Segment.KEY) {
+                checkType(type, Map.class, "['" + segment.value + "']");
+                ret[i] = new MethodAccess(MAP_GET, new Object[]{segment.value});
+            } else if (type.isArray()) {
+                ret[i] = new IndexAccess(type, segment.index);
+                type = type.getComponentType();
+                continue;
+            } else {
+                checkType(type, List.class, "[" + segment.index + "]");
+                ret[i] = new MethodAccess(LIST_GET, new Object[]{segment.index});
+            }
+            var member = ret[i].member();
+            // Generic values are erased, so members of their actual types cannot be resolved
+            type = member instanceof Field ? ((Field) member).getType() : ((Method) member).getReturnType();
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+final class PlanResolver {
+
+    private PlanResolver() {
+    }
+
+    private static MemberAccess resolveField(Class<?> packed, String name) {
+        try {
+            var field = packed.getField(name);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                return new FieldAccess(field);
+            }
+        } catch (NoSuchFieldException ignored) {
+        }
+        throw new IllegalArgumentException("Cannot find public non-static field '" + name + "' in " + packed);
+    }
+
+    private static MemberAccess resolveMethod(Class<?> packed, String name) {
+        try {
+            var method = packed.getMethod(name);
+            if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                return new MethodAccess(method, null);
+            }
+        } catch (NoSuchMethodException ignored) {
+        }
+        throw new IllegalArgumentException("Cannot find public non-static method '" + name + "()' in " + packed);
+    }
+
+    private static MemberAccess[] resolve(Class<?> packed, From from) {
+        var field = from.field();
+        var method = from.method();
+        if (field.isEmpty() == method.isEmpty()) {
+            throw new IllegalArgumentException("@From must specify exactly one of field or method");
+        }
+        return new MemberAccess[]{field.isEmpty() ? resolveMethod(packed, method) : resolveField(packed, field)};
+    }
+
+    private static MemberAccess[] resolve(Class<?> packed, Parameter parameter) {
+        var unpack = parameter.getAnnotation(Unpack.class);
+        var from = parameter.getAnnotation(From.class);
+        if (unpack != null && from != null) {
+            throw new IllegalArgumentException("Parameter " + parameter + " has both @Unpack and @From");
+        }
+        if (from != null) {
+            return resolve(packed, from);
+        }
+        if (unpack != null && !unpack.value().isEmpty()) {
+            return Unpackr.path(packed, unpack.value());
+        }
+        // Packed object itself
+        if (parameter.getType() != packed) {
+            throw new IllegalArgumentException(
+                    "Parameter " + parameter + " without path must be of packed type " + packed
+            );
+        }
+        return null;
+    }
+
+    static MemberAccess[][] resolve(Class<?> packed, Method target) {
+        var parameters = target.getParameters();
+        var ret = new MemberAccess[parameters.length][];
+        for (var i = 0; i < ret.length; ++i) {
+            ret[i] = resolve(packed, parameters[i]);
+        }
+        return ret;
+    }
+}
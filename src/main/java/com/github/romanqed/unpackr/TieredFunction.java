@@ -0,0 +1,36 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class TieredFunction<T> implements Function2<Object, T, Object> {
+    private final TieredUnpacker unpacker;
+    private final UnpackSpec spec;
+    private final int threshold;
+    private final AtomicBoolean promoted;
+    private volatile Function2<Object, T, Object> function;
+    // Plain field, lost updates only delay promotion
+    private int count;
+
+    TieredFunction(TieredUnpacker unpacker, UnpackSpec spec, Function2<Object, T, Object> function, int threshold) {
+        this.unpacker = unpacker;
+        this.spec = spec;
+        this.function = function;
+        this.threshold = threshold;
+        this.promoted = new AtomicBoolean();
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void compile(Unpacker compiler) {
+        function = (Function2) compiler.unpack(spec.packed(), spec.target(), spec.accesses());
+    }
+
+    @Override
+    public Object invoke(Object owner, T packed) throws Throwable {
+        if (count < threshold && ++count == threshold && promoted.compareAndSet(false, true)) {
+            unpacker.promote(this);
+        }
+        return function.invoke(owner, packed);
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link Unpacker} that starts with a cheap interpreted function and promotes it to a compiled one
+ * once it becomes hot.
+ * <p>
+ * Each returned function counts its invocations. When the count reaches the threshold, the compiling unpacker
+ * is called in the background and the function atomically switches to its result, while calls made
+ * in the meantime keep using the interpreted function. If compilation fails, the function stays interpreted.
+ * This way classes are generated only for targets that are actually called often.
+ * <p>
+ * This class is thread-safe. Counting is racy on purpose, so the threshold is approximate under contention,
+ * but every function is compiled at most once.
+ *
+ * <h3>Usage Example</h3>
+ * <pre>{@code
+ * var unpacker = new TieredUnpacker(
+ *         new ReflectUnpacker(new NoopReflectCloner()),
+ *         new AsmUnpacker(new DefineClassLoader()),
+ *         10_000
+ * );
+ * var function = unpacker.unpack(Ctx.class, method, rqPropsAccess);
+ * }</pre>
+ *
+ * @see Unpacker
+ */
+public final class TieredUnpacker implements Unpacker {
+    private final Unpacker interpreter;
+    private final Unpacker compiler;
+    private final int threshold;
+    private final Executor executor;
+    private final AtomicLong promotions;
+    private final AtomicLong failures;
+
+    /**
+     * Constructs a new {@code TieredUnpacker} with the specified tiers, threshold and executor.
+     *
+     * @param interpreter the unpacker creating initial functions, must not be {@code null}
+     * @param compiler    the unpacker creating functions for hot targets, must not be {@code null}
+     * @param threshold   the number of invocations after which a function is compiled, must be positive
+     * @param executor    the executor to run compilation on, must not be {@code null}
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public TieredUnpacker(Unpacker interpreter, Unpacker compiler, int threshold, Executor executor) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Compilation threshold must be positive");
+        }
+        this.interpreter = Objects.requireNonNull(interpreter);
+        this.compiler = Objects.requireNonNull(compiler);
+        this.threshold = threshold;
+        this.executor = Objects.requireNonNull(executor);
+        this.promotions = new AtomicLong();
+        this.failures = new AtomicLong();
+    }
+
+    /**
+     * Constructs a new {@code TieredUnpacker} that compiles hot functions on the common fork-join pool.
+     *
+     * @param interpreter the unpacker creating initial functions, must not be {@code null}
+     * @param compiler    the unpacker creating functions for hot targets, must not be {@code null}
+     * @param threshold   the number of invocations after which a function is compiled, must be positive
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public TieredUnpacker(Unpacker interpreter, Unpacker compiler, int threshold) {
+        this(interpreter, compiler, threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the number of invocations after which a function is compiled.
+     *
+     * @return the compilation threshold
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the number of functions switched to compiled ones.
+     *
+     * @return the number of promotions
+     */
+    public long promotions() {
+        return promotions.get();
+    }
+
+    /**
+     * Returns the number of functions that failed to compile and stay interpreted.
+     *
+     * @return the number of failed compilations
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    void promote(TieredFunction<?> function) {
+        executor.execute(() -> {
+            try {
+                function.compile(compiler);
+                promotions.incrementAndGet();
+            } catch (Throwable e) {
+                failures.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+        var spec = new UnpackSpec(packed, target, accesses);
+        return new TieredFunction<>(this, spec, interpreter.unpack(packed, target, accesses), threshold);
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.annotation.*;
+
+/**
+ * Binds a method parameter to a value extracted from the packed object by a path expression.
+ * <p>
+ * A path consists of segments separated by dots, optionally followed by index segments:
+ * <ul>
+ *     <li>{@code name} resolves to a public no-arg method {@code name()}, a getter {@code getName()}
+ *     or {@code isName()}, or a public non-static field {@code name}, in this order;</li>
+ *     <li>{@code ['key']} or {@code ["key"]} resolves to {@link java.util.Map#get(Object)} with a string key;</li>
+ *     <li>{@code [0]} resolves to {@link java.util.List#get(int)} with a constant index.</li>
+ * </ul>
+ * For example, {@code "rq.rqProps['key']"} is equivalent to {@code packed.getRq().getRqProps().get("key")}.
+ * An empty path refers to the packed object itself.
+ * <p>
+ * Besides build-time generation, annotated parameters are bound at runtime by
+ * {@link Unpacker#unpack(Class, java.lang.reflect.Method)}.
+ *
+ * @see Unpackable
+ * @see From
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Unpack {
+
+    /**
+     * Returns the path expression relative to the packed object.
+     *
+     * @return the path expression
+     */
+    String value();
+}
@@ -0,0 +1,92 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Describes a single unpacking task: the packed type, the target method and the chains of member access
+ * used to extract its arguments.
+ * <p>
+ * Two specs are equal if and only if they have the same packed type, the same target method
+ * and element-wise equal access chains, so a spec can be used as a content-based cache key.
+ *
+ * @see Unpacker
+ * @see MemberAccess
+ */
+public final class UnpackSpec {
+    private final Class<?> packed;
+    private final Method target;
+    private final MemberAccess[][] accesses;
+    private final int hash;
+
+    /**
+     * Constructs a new {@code UnpackSpec}. The access chains are copied, so later changes
+     * of the passed arrays do not affect the spec.
+     *
+     * @param packed   the class of the packed input object
+     * @param target   the target method to invoke
+     * @param accesses the chains of member access to extract method arguments
+     * @throws NullPointerException if the packed type, target or accesses array is null
+     */
+    public UnpackSpec(Class<?> packed, Method target, MemberAccess[]... accesses) {
+        this.packed = Objects.requireNonNull(packed);
+        this.target = Objects.requireNonNull(target);
+        this.accesses = copy(Objects.requireNonNull(accesses));
+        this.hash = 31 * (31 * packed.hashCode() + target.hashCode()) + Arrays.deepHashCode(this.accesses);
+    }
+
+    private static MemberAccess[][] copy(MemberAccess[][] accesses) {
+        var ret = new MemberAccess[accesses.length][];
+        for (var i = 0; i < accesses.length; ++i) {
+            var access = accesses[i];
+            ret[i] = access == null ? null : access.clone();
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the class of the packed input object.
+     *
+     * @return the packed class
+     */
+    public Class<?> packed() {
+        return packed;
+    }
+
+    /**
+     * Returns the target method.
+     *
+     * @return the target method
+     */
+    public Method target() {
+        return target;
+    }
+
+    /**
+     * Returns a copy of the access chains.
+     *
+     * @return a copy of the access chains
+     */
+    public MemberAccess[][] accesses() {
+        return copy(accesses);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+
+        var that = (UnpackSpec) object;
+
+        if (hash != that.hash) return false;
+        if (packed != that.packed) return false;
+        if (!target.equals(that.target)) return false;
+        return Arrays.deepEquals(accesses, that.accesses);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
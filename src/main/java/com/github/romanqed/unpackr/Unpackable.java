@@ -0,0 +1,43 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method as a target for build-time unpacker generation.
+ * <p>
+ * The {@code unpackr-processor} annotation processor generates a plain Java implementation of
+ * {@link com.github.romanqed.jfunc.Function2} for every annotated method. Arguments are extracted from
+ * the packed object according to the {@link Unpack} annotations of the method parameters. A parameter
+ * without {@link Unpack} receives the packed object itself, so its type must be the packed type.
+ * Generated unpackers can be obtained at runtime with {@link UnpackerRegistry}.
+ *
+ * <h3>Example</h3>
+ * <pre>{@code
+ * public class Handler {
+ *
+ *     @Unpackable(Ctx.class)
+ *     public void handle(@Unpack("rq.rqProps['rqProp']") Object rqProp,
+ *                        @Unpack("rp.rpProps['rpProp']") Object rpProp) {
+ *         ...
+ *     }
+ * }
+ *
+ * var target = Handler.class.getMethod("handle", Object.class, Object.class);
+ * var function = UnpackerRegistry.get(Ctx.class, target);
+ * }</pre>
+ *
+ * @see Unpack
+ * @see UnpackerRegistry
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Unpackable {
+
+    /**
+     * Returns the class of the packed object.
+     *
+     * @return the packed class
+     */
+    Class<?> value();
+}
@@ -20,4 +20,19 @@ public interface Unpacker {
      * @return a function that unpacks and calls the method
      */
     <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses);
+
+    /**
+     * Creates a function that extracts values from an input object using access chains derived
+     * from {@link Unpack} and {@link From} annotations of the target method parameters.
+     *
+     * @param packed the class of the packed input object
+     * @param target the target method to invoke
+     * @param <T>    the type of the packed object
+     * @return a function that unpacks and calls the method
+     * @throws IllegalArgumentException if any parameter cannot be bound
+     * @see Unpackr#accesses(Class, Method)
+     */
+    default <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target) {
+        return unpack(packed, target, Unpackr.accesses(packed, target));
+    }
 }
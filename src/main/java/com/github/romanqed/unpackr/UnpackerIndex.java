@@ -0,0 +1,25 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.reflect.Method;
+
+/**
+ * An index of unpackers generated at build time for the methods of a single class.
+ * <p>
+ * Implementations are generated by the {@code unpackr-processor} annotation processor and are not intended
+ * to be implemented manually. Use {@link UnpackerRegistry} to look up generated unpackers.
+ *
+ * @see UnpackerRegistry
+ */
+public interface UnpackerIndex {
+
+    /**
+     * Finds the generated unpacker for the specified packed type and target method.
+     *
+     * @param packed the class of the packed input object
+     * @param target the target method
+     * @return the generated unpacker, or {@code null} if there is no unpacker for the given pair
+     */
+    Function2<Object, ?, Object> find(Class<?> packed, Method target);
+}
@@ -0,0 +1,86 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * A runtime registry of unpackers generated at build time by the {@code unpackr-processor} annotation processor.
+ * <p>
+ * For every class with {@link Unpackable} methods the processor generates an {@link UnpackerIndex} named
+ * {@code <DeclaringClass>$$Unpackers} in the same package. The registry loads the index of a declaring class
+ * once and caches it, so subsequent lookups do not involve any reflection. In modular applications
+ * the package of the declaring class must be exported to the {@code com.github.romanqed.unpackr} module.
+ *
+ * @see Unpackable
+ * @see UnpackerIndex
+ */
+public final class UnpackerRegistry {
+    /**
+     * The suffix of generated index class names.
+     */
+    public static final String INDEX_SUFFIX = "$$Unpackers";
+    private static final UnpackerIndex EMPTY = (packed, target) -> null;
+    private static final ClassValue<UnpackerIndex> INDEXES = new ClassValue<>() {
+        @Override
+        protected UnpackerIndex computeValue(Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private UnpackerRegistry() {
+    }
+
+    private static UnpackerIndex load(Class<?> type) {
+        Class<?> found;
+        try {
+            found = Class.forName(type.getName() + INDEX_SUFFIX, true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return EMPTY;
+        }
+        if (!UnpackerIndex.class.isAssignableFrom(found)) {
+            throw new IllegalStateException("Invalid unpacker index: " + found);
+        }
+        try {
+            return (UnpackerIndex) found.getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create unpacker index: " + found, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create unpacker index: " + found, e);
+        }
+    }
+
+    /**
+     * Finds the generated unpacker for the specified packed type and target method.
+     *
+     * @param packed the class of the packed input object
+     * @param target the target method
+     * @param <T>    the type of the packed object
+     * @return the generated unpacker, or {@code null} if it was not generated
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Function2<Object, T, Object> find(Class<T> packed, Method target) {
+        Objects.requireNonNull(packed);
+        var index = INDEXES.get(target.getDeclaringClass());
+        return (Function2<Object, T, Object>) index.find(packed, target);
+    }
+
+    /**
+     * Returns the generated unpacker for the specified packed type and target method.
+     *
+     * @param packed the class of the packed input object
+     * @param target the target method
+     * @param <T>    the type of the packed object
+     * @return the generated unpacker
+     * @throws IllegalArgumentException if the unpacker was not generated
+     */
+    public static <T> Function2<Object, T, Object> get(Class<T> packed, Method target) {
+        var ret = find(packed, target);
+        if (ret == null) {
+            throw new IllegalArgumentException("No generated unpacker found for " + target + ", " + packed);
+        }
+        return ret;
+    }
+}
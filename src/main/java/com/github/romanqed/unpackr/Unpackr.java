@@ -0,0 +1,108 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility methods for building access chains from path expressions and parameter annotations.
+ * <p>
+ * A path expression is a sequence of segments separated by dots, where each segment is resolved against
+ * the type of the previous one:
+ * <ul>
+ *     <li>{@code name} is a public non-static method {@code name()}, {@code getName()} or {@code isName()},
+ *     or a public non-static field {@code name};</li>
+ *     <li>{@code ['key']} or {@code ["key"]} is {@link Map#get(Object)} with a constant string key;</li>
+ *     <li>{@code [0]} is an array element or {@link java.util.List#get(int)} with a constant index.</li>
+ * </ul>
+ * For example, {@code "rq.rqProps['key']"} is the same chain as
+ * <pre>{@code
+ * MemberAccess.of()
+ *     .of(Ctx.class)
+ *     .of(Ctx.class.getMethod("getRq"))
+ *     .of(Rq.class.getMethod("getRqProps"))
+ *     .of(Map.class.getMethod("get", Object.class), "key")
+ *     .build();
+ * }</pre>
+ * Resolved chains are cached per root type and expression, so repeated expressions are resolved
+ * with a single lookup and no reflection. Since types of generic values are erased, members of map values
+ * and list elements cannot be accessed.
+ *
+ * @see MemberAccess
+ * @see MemberAccessBuilder
+ */
+public final class Unpackr {
+    private static final ClassValue<Map<String, MemberAccess[]>> PATHS = new ClassValue<>() {
+        @Override
+        protected Map<String, MemberAccess[]> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    // Plans are cached per handler class, so handler classes and their loaders are not pinned by packed types
+    private static final ClassValue<Map<Method, Map<Class<?>, MemberAccess[][]>>> PLANS = new ClassValue<>() {
+        @Override
+        protected Map<Method, Map<Class<?>, MemberAccess[][]>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private Unpackr() {
+    }
+
+    private static MemberAccess[] copy(MemberAccess[] accesses) {
+        return accesses == null ? null : accesses.clone();
+    }
+
+    /**
+     * Resolves the path expression against the specified root type into an access chain.
+     *
+     * @param root the root type of the chain, must be non-primitive
+     * @param path the path expression
+     * @return a new array containing the resolved access chain
+     * @throws IllegalArgumentException if the path is malformed or cannot be resolved
+     */
+    public static MemberAccess[] path(Class<?> root, String path) {
+        Objects.requireNonNull(path);
+        if (root.isPrimitive()) {
+            throw new IllegalArgumentException("Root type must be non-primitive");
+        }
+        var ret = PATHS.get(root).computeIfAbsent(path, key -> PathResolver.resolve(root, key));
+        // Cached chains are shared, so callers get their own copy
+        return ret.clone();
+    }
+
+    static MemberAccess[][] plan(Class<?> packed, Method target) {
+        Objects.requireNonNull(target);
+        if (packed.isPrimitive()) {
+            throw new IllegalArgumentException("Packed type must be non-primitive");
+        }
+        return PLANS.get(target.getDeclaringClass())
+                .computeIfAbsent(target, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(packed, key -> PlanResolver.resolve(key, target));
+    }
+
+    /**
+     * Derives access chains for all parameters of the target method from their annotations.
+     * <p>
+     * A parameter annotated with {@link Unpack} is bound to its path expression, a parameter annotated
+     * with {@link From} to the named member of the packed type. A parameter without annotations,
+     * as well as one with an empty path, receives the packed object itself, so its type must be the packed
+     * type. Derived chains are cached per packed type and method, so repeated registrations of the same
+     * method do not scan it again.
+     *
+     * @param packed the class of the packed object, must be non-primitive
+     * @param target the target method
+     * @return a new array of access chains, with {@code null} for parameters receiving the packed object
+     * @throws IllegalArgumentException if any parameter cannot be bound
+     */
+    public static MemberAccess[][] accesses(Class<?> packed, Method target) {
+        var plan = plan(packed, target);
+        var ret = new MemberAccess[plan.length][];
+        for (var i = 0; i < ret.length; ++i) {
+            ret[i] = copy(plan[i]);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.romanqed.unpackr;
+
+import java.lang.reflect.Member;
+
+/**
+ * Represents a marker that terminates a write access chain.
+ * <p>
+ * The member preceding the marker is written instead of read: a field is assigned, and a method receives
+ * the written value as its last parameter. Chains ending with this marker can only be used by a {@link Packer},
+ * which in turn rejects chains without it, so a read chain is never mistaken for a write and vice versa.
+ * <p>
+ * Instances are usually appended by {@link MemberAccessBuilder#set(java.lang.reflect.Field)}
+ * or {@link MemberAccessBuilder#set(java.lang.reflect.Method, Object...)}.
+ */
+public final class WriteAccess implements MemberAccess {
+
+    /**
+     * Finds the write marker terminating the specified access chain.
+     *
+     * @param accesses the access chain, may be {@code null}
+     * @return the marker, or {@code null} if the chain does not end with a write
+     */
+    public static WriteAccess find(MemberAccess[] accesses) {
+        if (accesses == null || accesses.length == 0) {
+            return null;
+        }
+        var last = accesses[accesses.length - 1];
+        return last instanceof WriteAccess ? (WriteAccess) last : null;
+    }
+
+    /**
+     * Returns {@code null}, since the marker does not access any member.
+     *
+     * @return {@code null}
+     */
+    @Override
+    public Member member() {
+        return null;
+    }
+
+    @Override
+    public void accept(MemberAccessVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        return object != null && getClass() == object.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return WriteAccess.class.hashCode();
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public final class CachedUnpackerTest {
+
+    public static Object handle(Object value) {
+        return value;
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        var counter = new CountingUnpacker();
+        var unpacker = new CachedUnpacker(counter, 16);
+        var target = CachedUnpackerTest.class.getMethod("handle", Object.class);
+        var first = unpacker.unpack(Ctx.class, target, access("getA"));
+        var second = unpacker.unpack(Ctx.class, target, access("getA"));
+        assertSame(first, second);
+        assertEquals(1, counter.count);
+        assertEquals(1, unpacker.hits());
+        assertEquals(1, unpacker.misses());
+    }
+
+    @Test
+    public void testDistinctChains() throws Exception {
+        var counter = new CountingUnpacker();
+        var unpacker = new CachedUnpacker(counter, 16);
+        var target = CachedUnpackerTest.class.getMethod("handle", Object.class);
+        var first = unpacker.unpack(Ctx.class, target, access("getA"));
+        var second = unpacker.unpack(Ctx.class, target, access("getB"));
+        assertNotSame(first, second);
+        assertEquals(2, counter.count);
+        assertEquals(0, unpacker.hits());
+        assertEquals(2, unpacker.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        var counter = new CountingUnpacker();
+        var unpacker = new CachedUnpacker(counter, 2);
+        var target = CachedUnpackerTest.class.getMethod("handle", Object.class);
+        var a = unpacker.unpack(Ctx.class, target, access("getA"));
+        unpacker.unpack(Ctx.class, target, access("getB"));
+        // Touch A, so B becomes the eldest entry
+        assertSame(a, unpacker.unpack(Ctx.class, target, access("getA")));
+        unpacker.unpack(Ctx.class, target, access("getC"));
+        assertEquals(2, unpacker.size());
+        assertSame(a, unpacker.unpack(Ctx.class, target, access("getA")));
+        unpacker.unpack(Ctx.class, target, access("getB"));
+        assertEquals(4, counter.count);
+    }
+
+    private static MemberAccess[] access(String name) throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod(name))
+                .build();
+    }
+
+    public interface Ctx {
+        Object getA();
+
+        Object getB();
+
+        Object getC();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final class CountingUnpacker implements Unpacker {
+        int count;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+            var id = ++count;
+            return (Function2) (owner, value) -> id;
+        }
+    }
+}
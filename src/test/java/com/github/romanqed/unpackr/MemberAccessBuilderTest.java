@@ -2,9 +2,13 @@ package com.github.romanqed.unpackr;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class MemberAccessBuilderTest {
@@ -92,6 +96,128 @@ public final class MemberAccessBuilderTest {
         assertEquals(C.class.getMethod("getStrVal"), chain[1].member());
     }
 
+    @Test
+    public void testInheritedMember() throws Exception {
+        var chain = MemberAccess.of()
+                .of(Impl.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(Object.class.getMethod("toString"))
+                .build();
+        assertEquals(2, chain.length);
+        assertEquals(Ctx.class.getMethod("getA"), chain[0].member());
+    }
+
+    @Test
+    public void testCast() throws Exception {
+        var chain = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("get", Object.class), "stub")
+                .cast(Stub.class)
+                .of(Stub.class.getField("test"))
+                .build();
+        assertEquals(5, chain.length);
+        assertEquals(new CastAccess(Stub.class), chain[3]);
+        assertEquals(Stub.class.getField("test"), chain[4].member());
+        // Final class cannot implement an unrelated interface
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Stub.class)
+                .cast(A.class)
+        );
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .of(Map.class.getMethod("size"))
+                .cast(Integer.class)
+        );
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        var chain = MemberAccess.of()
+                .of(Stub.class)
+                .of(Stub.class.getField("values"))
+                .index(1)
+                .index(0)
+                .build();
+        assertEquals(3, chain.length);
+        assertEquals(new IndexAccess(String[][].class, 1), chain[1]);
+        assertEquals(new IndexAccess(String[].class, 0), chain[2]);
+        var list = MemberAccess.of()
+                .of(Stub.class)
+                .of(Stub.class.getField("list"))
+                .index(2)
+                .build();
+        assertEquals(List.class.getMethod("get", int.class), list[1].member());
+        assertArrayEquals(new Object[]{2}, ((MethodAccess) list[1]).arguments());
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Stub.class)
+                .index(0)
+        );
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Stub.class)
+                .of(Stub.class.getField("values"))
+                .index(-1)
+        );
+    }
+
+    @Test
+    public void testNullSafe() throws Exception {
+        var chain = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .nullSafe("default")
+                .build();
+        assertEquals(2, chain.length);
+        assertEquals(new NullSafeAccess("default"), NullSafeAccess.find(chain));
+        assertEquals(0, new NullSafeAccess(null).value(int.class));
+        assertThrows(IllegalArgumentException.class, () -> new NullSafeAccess(1L).value(int.class));
+        assertThrows(IllegalStateException.class, () -> MemberAccess.of()
+                .of(Ctx.class)
+                .nullSafe()
+                .of(Ctx.class.getMethod("getA"))
+        );
+    }
+
+    @Test
+    public void testSet() throws Exception {
+        var put = Map.class.getMethod("put", Object.class, Object.class);
+        var chain = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .of(A.class.getMethod("getAProps"))
+                .set(put, "key")
+                .build();
+        assertEquals(4, chain.length);
+        assertEquals(new MethodAccess(put, new Object[]{"key"}), chain[2]);
+        assertEquals(new WriteAccess(), chain[3]);
+        var field = MemberAccess.of()
+                .of(Stub.class)
+                .set(Stub.class.getField("test"))
+                .build();
+        assertEquals(2, field.length);
+        assertEquals(new FieldAccess(Stub.class.getField("test")), field[0]);
+        assertNotNull(WriteAccess.find(field));
+        // Reading the same member does not make a write chain
+        assertNull(WriteAccess.find(MemberAccess.of().of(Stub.class).of(Stub.class.getField("test")).build()));
+        // Value is passed as the last parameter, so constants must not cover it
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Map.class)
+                .set(put, "key", "value")
+        );
+        assertThrows(IllegalArgumentException.class, () -> MemberAccess.of()
+                .of(Stub.class)
+                .set(Stub.class.getField("constant"))
+        );
+        assertThrows(IllegalStateException.class, () -> MemberAccess.of()
+                .of(Stub.class)
+                .set(Stub.class.getField("test"))
+                .of(Stub.class.getField("list"))
+        );
+    }
+
     public interface Ctx {
         Object TEST = null;
 
@@ -122,7 +248,13 @@ public final class MemberAccessBuilderTest {
         String getStrVal();
     }
 
+    public abstract static class Impl implements Ctx {
+    }
+
     public static final class Stub {
         public int test;
+        public String[][] values;
+        public List<String> list;
+        public final int constant = 0;
     }
 }
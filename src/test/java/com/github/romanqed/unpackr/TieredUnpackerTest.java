@@ -0,0 +1,92 @@
+package com.github.romanqed.unpackr;
+
+import com.github.romanqed.jfunc.Function2;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TieredUnpackerTest {
+
+    public static Object handle(Object value) {
+        return value;
+    }
+
+    @Test
+    public void testPromotion() throws Throwable {
+        var tasks = new ArrayList<Runnable>();
+        var compiler = new TierUnpacker("compiled");
+        var unpacker = new TieredUnpacker(new TierUnpacker("interpreted"), compiler, 3, tasks::add);
+        var target = TieredUnpackerTest.class.getMethod("handle", Object.class);
+        var function = unpacker.unpack(Ctx.class, target, access());
+        assertEquals("interpreted", function.invoke(null, null));
+        assertEquals("interpreted", function.invoke(null, null));
+        assertTrue(tasks.isEmpty());
+        // Threshold is reached, compilation is scheduled once
+        assertEquals("interpreted", function.invoke(null, null));
+        assertEquals("interpreted", function.invoke(null, null));
+        assertEquals(1, tasks.size());
+        assertEquals(0, compiler.count);
+        tasks.get(0).run();
+        assertEquals(1, compiler.count);
+        assertEquals("compiled", function.invoke(null, null));
+        assertEquals(1, unpacker.promotions());
+        assertEquals(0, unpacker.failures());
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testFailure() throws Throwable {
+        var failing = new Unpacker() {
+            @Override
+            public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+                throw new IllegalArgumentException();
+            }
+        };
+        var unpacker = new TieredUnpacker(new TierUnpacker("interpreted"), failing, 1, Runnable::run);
+        var target = TieredUnpackerTest.class.getMethod("handle", Object.class);
+        var function = unpacker.unpack(Ctx.class, target, access());
+        assertEquals("interpreted", function.invoke(null, null));
+        assertEquals("interpreted", function.invoke(null, null));
+        assertEquals(0, unpacker.promotions());
+        assertEquals(1, unpacker.failures());
+    }
+
+    @Test
+    public void testInvalidThreshold() {
+        var tier = new TierUnpacker("interpreted");
+        assertThrows(IllegalArgumentException.class, () -> new TieredUnpacker(tier, tier, 0));
+    }
+
+    private static MemberAccess[] access() throws NoSuchMethodException {
+        return MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getA"))
+                .build();
+    }
+
+    public interface Ctx {
+        Object getA();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final class TierUnpacker implements Unpacker {
+        private final Object tier;
+        int count;
+
+        private TierUnpacker(Object tier) {
+            this.tier = tier;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Function2<Object, T, Object> unpack(Class<T> packed, Method target, MemberAccess[]... accesses) {
+            ++count;
+            return (Function2) (owner, value) -> tier;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.romanqed.unpackr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class UnpackrTest {
+
+    @Test
+    public void testPath() throws Exception {
+        var expected = MemberAccess.of()
+                .of(Ctx.class)
+                .of(Ctx.class.getMethod("getRq"))
+                .of(Rq.class.getMethod("getRqProps"))
+                .of(Map.class.getMethod("get", Object.class), "key")
+                .build();
+        assertArrayEquals(expected, Unpackr.path(Ctx.class, "rq.rqProps['key']"));
+        assertArrayEquals(expected, Unpackr.path(Ctx.class, "rq.rqProps[\"key\"]"));
+        var values = Unpackr.path(Ctx.class, "rq.values[1]");
+        assertEquals(3, values.length);
+        assertEquals(List.class.getMethod("get", int.class), values[2].member());
+        assertArrayEquals(new Object[]{1}, ((MethodAccess) values[2]).arguments());
+        var codes = Unpackr.path(Ctx.class, "rq.codes[2]");
+        assertEquals(new IndexAccess(long[].class, 2), codes[2]);
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(Ctx.class, "rq.codes[0].value"));
+        var active = Unpackr.path(Ctx.class, "active");
+        assertEquals(Ctx.class.getMethod("isActive"), active[0].member());
+        var field = Unpackr.path(Ctx.class, "rq.id");
+        assertEquals(Rq.class.getField("id"), field[1].member());
+        assertEquals(0, Unpackr.path(Ctx.class, "").length);
+    }
+
+    @Test
+    public void testCache() {
+        var first = Unpackr.path(Ctx.class, "rq.rqProps['key']");
+        var second = Unpackr.path(Ctx.class, "rq.rqProps['key']");
+        // Callers get copies of the same resolved chain
+        assertNotSame(first, second);
+        for (var i = 0; i < first.length; ++i) {
+            assertSame(first[i], second[i]);
+        }
+    }
+
+    @Test
+    public void testInvalidPath() {
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(Ctx.class, "rq.unknown"));
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(Ctx.class, "rq[0]"));
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(Ctx.class, "rq.rqProps['key'"));
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(Ctx.class, "rq..id"));
+        assertThrows(IllegalArgumentException.class, () -> Unpackr.path(int.class, "value"));
+    }
+
+    @Test
+    public void testAccesses() throws Exception {
+        var target = Handler.class.getMethod("handle", Event.class, Object.class, Rq.class, int.class, Event.class);
+        var accesses = Unpackr.accesses(Event.class, target);
+        assertEquals(5, accesses.length);
+        assertNull(accesses[0]);
+        assertArrayEquals(Unpackr.path(Event.class, "rq.rqProps['key']"), accesses[1]);
+        assertArrayEquals(new MemberAccess[]{new MethodAccess(Event.class.getMethod("getRq"), null)}, accesses[2]);
+        assertArrayEquals(new MemberAccess[]{new FieldAccess(Event.class.getField("count"))}, accesses[3]);
+        assertNull(accesses[4]);
+        // Plans are cached, callers get copies
+        var cached = Unpackr.accesses(Event.class, target);
+        assertNotSame(accesses, cached);
+        assertNotSame(accesses[1], cached[1]);
+        assertSame(accesses[1][0], cached[1][0]);
+    }
+
+    @Test
+    public void testInvalidAccesses() throws Exception {
+        for (var name : new String[]{"both", "neither", "unknown", "notPacked"}) {
+            var target = Handler.class.getMethod(name, Object.class);
+            assertThrows(IllegalArgumentException.class, () -> Unpackr.accesses(Event.class, target), name);
+        }
+    }
+
+    public static final class Handler {
+        public void handle(Event event,
+                           @Unpack("rq.rqProps['key']") Object value,
+                           @From(method = "getRq") Rq rq,
+                           @From(field = "count") int count,
+                           @Unpack("") Event self) {
+        }
+
+        public void both(@Unpack("rq") @From(method = "getRq") Object value) {
+        }
+
+        public void neither(@From Object value) {
+        }
+
+        public void unknown(@From(field = "rq") Object value) {
+        }
+
+        public void notPacked(Object value) {
+        }
+    }
+
+    public static final class Event {
+        public int count;
+
+        public Rq getRq() {
+            return new Rq();
+        }
+    }
+
+    public interface Ctx {
+        Rq getRq();
+
+        boolean isActive();
+    }
+
+    public static final class Rq {
+        public int id;
+
+        public Map<String, Object> getRqProps() {
+            return Map.of();
+        }
+
+        public List<String> getValues() {
+            return List.of();
+        }
+
+        public long[] getCodes() {
+            return new long[0];
+        }
+    }
+}